@@ -0,0 +1,91 @@
+package org.incava.diff;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The common code of the engines that work on an array of matches, which
+ * first match the elements that are the same at the start and end of the
+ * collections, then the ranges between them.
+ */
+public abstract class AbstractDiffEngine implements DiffEngine {
+    public <ObjectType> Alignment getAlignment(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp) {
+        int[] matches = createMatches(from);
+        int[] ranges = addCommonMatches(from, to, comp, matches);
+
+        boolean minimal = true;
+        if (ranges[0] <= ranges[1] && ranges[2] <= ranges[3]) {
+            minimal = addMatches(from, to, comp, matches, ranges[0], ranges[1], ranges[2], ranges[3]);
+        }
+
+        return new Alignment(matches, minimal);
+    }
+
+    /**
+     * Returns the array of matches for <code>from</code>, with none set.
+     */
+    protected <ObjectType> int[] createMatches(List<ObjectType> from) {
+        int[] matches = new int[from.size()];
+        Arrays.fill(matches, -1);
+        return matches;
+    }
+
+    /**
+     * Returns the name of the class. Subclasses with parameters add them.
+     */
+    public String getKey() {
+        return getClass().getName();
+    }
+
+    /**
+     * Sets the matches of the common beginning and ending elements, and
+     * returns the inclusive ranges between them, as { fromStart, fromEnd,
+     * toStart, toEnd }.
+     */
+    protected <ObjectType> int[] addCommonMatches(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int[] matches) {
+        return addCommonMatches(createMatcher(from, to, comp), matches, from.size(), to.size());
+    }
+
+    /**
+     * Sets the matches of the common beginning and ending elements of
+     * sequences of the given sizes, and returns the inclusive ranges between
+     * them, as { fromStart, fromEnd, toStart, toEnd }.
+     */
+    protected int[] addCommonMatches(ElementMatcher matcher, int[] matches, int fromSize, int toSize) {
+        int fromStart = 0;
+        int fromEnd = fromSize - 1;
+
+        int toStart = 0;
+        int toEnd = toSize - 1;
+
+        while (fromStart <= fromEnd && toStart <= toEnd && matcher.matches(fromStart, toStart)) {
+            matches[fromStart++] = toStart++;
+        }
+
+        while (fromStart <= fromEnd && toStart <= toEnd && matcher.matches(fromEnd, toEnd)) {
+            matches[fromEnd--] = toEnd--;
+        }
+
+        return new int[] { fromStart, fromEnd, toStart, toEnd };
+    }
+
+    /**
+     * Sets in <code>matches</code> the matches for the given ranges, which are
+     * inclusive. Returns whether the matches are known to be minimal.
+     */
+    public abstract <ObjectType> boolean addMatches(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd);
+
+    /**
+     * Returns the matcher for the elements of the two collections, which
+     * compares them by <code>Elements.isEqual</code>.
+     */
+    protected <ObjectType> ElementMatcher createMatcher(final List<ObjectType> from, final List<ObjectType> to, final Comparator<ObjectType> comp) {
+        final boolean comparable = Elements.isComparable(comp, from);
+        return new ElementMatcher() {
+            public boolean matches(int fromIdx, int toIdx) {
+                return Elements.isEqual(comp, comparable, from.get(fromIdx), to.get(toIdx));
+            }
+        };
+    }
+}
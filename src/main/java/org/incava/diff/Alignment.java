@@ -0,0 +1,210 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The matches between the "from" and "to" collections, as found by a
+ * <code>DiffEngine</code>, and whether they are known to be minimal, that is,
+ * a longest common subsequence.
+ *
+ * <p>The matches are kept as runs along the diagonals, each being a start in
+ * "from", a start in "to", and a length, so the memory is proportional to the
+ * number of edits, and not to the size of the collections. The match of a
+ * position is found by binary search of the runs.</p>
+ */
+public class Alignment {
+    /**
+     * The start in "from" of each run, in increasing order.
+     */
+    private final int[] fromStarts;
+
+    /**
+     * The start in "to" of each run, in increasing order.
+     */
+    private final int[] toStarts;
+
+    /**
+     * The length of each run.
+     */
+    private final int[] lengths;
+
+    /**
+     * The number of runs.
+     */
+    private final int runCount;
+
+    /**
+     * Whether the matches are a longest common subsequence.
+     */
+    private final boolean minimal;
+
+    /**
+     * Creates the alignment from an array of the matching position in "to"
+     * for each position in "from", with -1 for no match.
+     */
+    public Alignment(int[] matches, boolean minimal) {
+        this(matches, matches.length, minimal);
+    }
+
+    /**
+     * Creates the alignment from the first <code>length</code> elements of an
+     * array of the matching position in "to" for each position in "from",
+     * with -1 for no match.
+     */
+    public Alignment(int[] matches, int length, boolean minimal) {
+        int count = 0;
+        for (int idx = 0; idx < length; ++idx) {
+            if (matches[idx] != -1 && !continuesRun(matches, idx)) {
+                ++count;
+            }
+        }
+
+        this.fromStarts = new int[count];
+        this.toStarts = new int[count];
+        this.lengths = new int[count];
+        this.runCount = count;
+        this.minimal = minimal;
+
+        int run = -1;
+        for (int idx = 0; idx < length; ++idx) {
+            if (matches[idx] == -1) {
+                continue;
+            }
+            else if (continuesRun(matches, idx)) {
+                ++lengths[run];
+            }
+            else {
+                ++run;
+                fromStarts[run] = idx;
+                toStarts[run] = matches[idx];
+                lengths[run] = 1;
+            }
+        }
+    }
+
+    /**
+     * Creates the alignment from a list in the form of
+     * <code>LCS.getMatches</code>.
+     */
+    public Alignment(List<Integer> matches, boolean minimal) {
+        this(toArray(matches), minimal);
+    }
+
+    /**
+     * Creates the alignment from the given runs, which are in increasing
+     * order, and do not overlap in either "from" or "to".
+     */
+    public Alignment(int[] fromStarts, int[] toStarts, int[] lengths, int runCount, boolean minimal) {
+        this.fromStarts = Arrays.copyOf(fromStarts, runCount);
+        this.toStarts = Arrays.copyOf(toStarts, runCount);
+        this.lengths = Arrays.copyOf(lengths, runCount);
+        this.runCount = runCount;
+        this.minimal = minimal;
+    }
+
+    /**
+     * Returns the matching position in "to" for the given position in "from",
+     * or -1 if there is none.
+     */
+    public int getMatch(int fromIdx) {
+        // the last run starting at or before fromIdx:
+        int lo = 0;
+        int hi = runCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (fromStarts[mid] <= fromIdx) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+
+        if (hi < 0 || fromIdx >= fromStarts[hi] + lengths[hi]) {
+            return -1;
+        }
+        else {
+            return toStarts[hi] + fromIdx - fromStarts[hi];
+        }
+    }
+
+    /**
+     * Returns the number of positions in "from" up to and including the last
+     * one with a match.
+     */
+    public int size() {
+        return runCount == 0 ? 0 : fromStarts[runCount - 1] + lengths[runCount - 1];
+    }
+
+    /**
+     * Returns the number of runs of consecutive matches.
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Returns the start in "from" of the given run.
+     */
+    public int getFromStart(int run) {
+        return fromStarts[run];
+    }
+
+    /**
+     * Returns the start in "to" of the given run.
+     */
+    public int getToStart(int run) {
+        return toStarts[run];
+    }
+
+    /**
+     * Returns the number of matches in the given run.
+     */
+    public int getLength(int run) {
+        return lengths[run];
+    }
+
+    /**
+     * Returns whether the matches are known to be a longest common
+     * subsequence. This is false for engines that use heuristics, or that
+     * gave up on an exact search as too expensive.
+     */
+    public boolean isMinimal() {
+        return minimal;
+    }
+
+    /**
+     * Returns the matches in the same form as <code>LCS.getMatches</code>.
+     */
+    public List<Integer> toList() {
+        List<Integer> list = new ArrayList<Integer>(size());
+        for (int run = 0; run < runCount; ++run) {
+            while (list.size() < fromStarts[run]) {
+                list.add(null);
+            }
+            for (int idx = 0; idx < lengths[run]; ++idx) {
+                list.add(toStarts[run] + idx);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns whether the match at <code>idx</code> continues the run of the
+     * match before it.
+     */
+    private static boolean continuesRun(int[] matches, int idx) {
+        return idx > 0 && matches[idx - 1] != -1 && matches[idx] == matches[idx - 1] + 1;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] ary = new int[list.size()];
+        for (int idx = 0; idx < ary.length; ++idx) {
+            Integer value = list.get(idx);
+            ary[idx] = value == null ? -1 : value;
+        }
+        return ary;
+    }
+}
@@ -0,0 +1,33 @@
+package org.incava.diff;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An engine using the bit-parallel LCS of <code>BitParallelLCS</code>. The
+ * elements are first numbered by a <code>SymbolTable</code> of those in
+ * "from", so that the bit vectors can be found by an array lookup. This is
+ * best for short sequences with a small set of elements, such as characters
+ * or tokens.
+ */
+public class BitParallelEngine extends AbstractDiffEngine {
+    public <ObjectType> boolean addMatches(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd) {
+        LCS<ObjectType> lcs = new LCS<ObjectType>(from, to, comp);
+        SymbolTable<ObjectType> symbols = new SymbolTable<ObjectType>(lcs);
+        int[] fromSymbols = symbols.intern(from, fromStart, fromEnd + 1);
+        int[] toSymbols = symbols.lookup(to, toStart, toEnd + 1);
+
+        int[] rangeMatches = new int[fromSymbols.length];
+        Arrays.fill(rangeMatches, -1);
+        BitParallelLCS.addMatches(fromSymbols, 0, fromSymbols.length, toSymbols, 0, toSymbols.length, symbols.size(), rangeMatches);
+
+        for (int idx = 0; idx < rangeMatches.length; ++idx) {
+            if (rangeMatches[idx] != -1) {
+                matches[fromStart + idx] = toStart + rangeMatches[idx];
+            }
+        }
+
+        return true;
+    }
+}
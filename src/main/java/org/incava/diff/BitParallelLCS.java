@@ -0,0 +1,300 @@
+package org.incava.diff;
+
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The longest common subsequence of two sequences of symbols, computed with
+ * the bit-parallel algorithm of Allison and Dix, as refined by Hyyr&ouml;. Each
+ * row of the LCS table is kept as a bit vector over the "from" sequence, so
+ * each <code>long</code> processes 64 cells at once.
+ *
+ * <p>The rows are kept for the trace back, so the memory is about N*M/8
+ * bytes, for the ranges that remain after matching the common beginning and
+ * end. Beyond <code>MAX_WORDS</code>, the ranges are split, so the memory is
+ * bounded, and the time is about doubled. This is for short sequences, such as
+ * the characters of lines, not for whole files.</p>
+ */
+public class BitParallelLCS {
+    /**
+     * The most words of the rows kept for the trace back of one range, of 32
+     * MB.
+     */
+    public static final long MAX_WORDS = 1L << 22;
+
+    /**
+     * The symbols of the "from" values, each from 0 to the alphabet size.
+     */
+    private final int[] from;
+
+    /**
+     * The symbols of the "to" values, each from 0 to the alphabet size, or -1
+     * for a value not in "from".
+     */
+    private final int[] to;
+
+    /**
+     * The number of distinct symbols.
+     */
+    private final int alphabetSize;
+
+    /**
+     * Constructs the LCS for the two arrays of characters.
+     */
+    public BitParallelLCS(char[] from, char[] to) {
+        this(CharBuffer.wrap(from), CharBuffer.wrap(to));
+    }
+
+    /**
+     * Constructs the LCS for the two character sequences.
+     */
+    public BitParallelLCS(CharSequence from, CharSequence to) {
+        // the distinct characters of from, sorted, are the alphabet:
+        char[] alphabet = new char[from.length()];
+        for (int idx = 0; idx < alphabet.length; ++idx) {
+            alphabet[idx] = from.charAt(idx);
+        }
+        Arrays.sort(alphabet);
+        int size = 0;
+        for (int idx = 0; idx < alphabet.length; ++idx) {
+            if (size == 0 || alphabet[size - 1] != alphabet[idx]) {
+                alphabet[size++] = alphabet[idx];
+            }
+        }
+
+        this.from = new int[from.length()];
+        for (int idx = 0; idx < this.from.length; ++idx) {
+            this.from[idx] = Arrays.binarySearch(alphabet, 0, size, from.charAt(idx));
+        }
+
+        this.to = new int[to.length()];
+        for (int idx = 0; idx < this.to.length; ++idx) {
+            this.to[idx] = Math.max(-1, Arrays.binarySearch(alphabet, 0, size, to.charAt(idx)));
+        }
+
+        this.alphabetSize = size;
+    }
+
+    /**
+     * Constructs the LCS for the two arrays of bytes.
+     */
+    public BitParallelLCS(byte[] from, byte[] to) {
+        this.from = new int[from.length];
+        for (int idx = 0; idx < from.length; ++idx) {
+            this.from[idx] = from[idx] & 0xff;
+        }
+
+        this.to = new int[to.length];
+        for (int idx = 0; idx < to.length; ++idx) {
+            this.to[idx] = to[idx] & 0xff;
+        }
+
+        this.alphabetSize = 256;
+    }
+
+    /**
+     * Constructs the LCS for two arrays of symbols, each from 0 to
+     * <code>alphabetSize</code>, such as the token numbers of a small
+     * alphabet. The "to" values may also be -1, for symbols not in "from".
+     */
+    public BitParallelLCS(int[] from, int[] to, int alphabetSize) {
+        this.from = from;
+        this.to = to;
+        this.alphabetSize = alphabetSize;
+    }
+
+    /**
+     * Returns the matches, in the same form as <code>LCS.getMatches</code>.
+     */
+    public List<Integer> getMatches() {
+        return LCS.toList(getMatchArray());
+    }
+
+    /**
+     * Returns the matches as an array, indexed by the position in "from", with
+     * each value being the matching position in "to", or -1 if there is no
+     * match.
+     */
+    public int[] getMatchArray() {
+        int[] matches = new int[from.length];
+        Arrays.fill(matches, -1);
+
+        int fromStart = 0;
+        int fromEnd = from.length;
+        int toStart = 0;
+        int toEnd = to.length;
+
+        // common beginning and ending elements:
+        while (fromStart < fromEnd && toStart < toEnd && from[fromStart] == to[toStart]) {
+            matches[fromStart++] = toStart++;
+        }
+
+        while (fromStart < fromEnd && toStart < toEnd && from[fromEnd - 1] == to[toEnd - 1]) {
+            matches[--fromEnd] = --toEnd;
+        }
+
+        addMatches(from, fromStart, fromEnd, to, toStart, toEnd, alphabetSize, matches);
+        return matches;
+    }
+
+    /**
+     * Sets in <code>matches</code> the matches for the given ranges, which are
+     * exclusive of the end points. Ranges whose rows would exceed
+     * <code>MAX_WORDS</code> are split, as by Hirschberg, at the middle of
+     * "to" and where the scores of the two halves, which need only one row
+     * each, add up to the most, until the parts are small enough.
+     */
+    public static void addMatches(int[] from, int fromStart, int fromEnd, int[] to, int toStart, int toEnd, int alphabetSize, int[] matches) {
+        // the parts halve "to" each time, so there are few on the stack:
+        Deque<int[]> ranges = new ArrayDeque<int[]>();
+        ranges.push(new int[] { fromStart, fromEnd, toStart, toEnd });
+
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int n = range[1] - range[0];
+            int m = range[3] - range[2];
+
+            if (n == 0 || m == 0) {
+                continue;
+            }
+            else if (m == 1 || (long)m * ((n + 63) >>> 6) <= MAX_WORDS) {
+                addTableMatches(from, range[0], range[1], to, range[2], range[3], alphabetSize, matches);
+            }
+            else {
+                int toMid = range[2] + m / 2;
+                int[] before = getScores(from, range[0], range[1], to, range[2], toMid, alphabetSize, false);
+                int[] after = getScores(from, range[0], range[1], to, toMid, range[3], alphabetSize, true);
+
+                int split = 0;
+                for (int i = 1; i <= n; ++i) {
+                    if (before[i] + after[n - i] > before[split] + after[n - split]) {
+                        split = i;
+                    }
+                }
+
+                ranges.push(new int[] { range[0] + split, range[1], toMid, range[3] });
+                ranges.push(new int[] { range[0], range[0] + split, range[2], toMid });
+            }
+        }
+    }
+
+    /**
+     * Sets the matches for the given ranges from the table of all of the
+     * rows.
+     */
+    private static void addTableMatches(int[] from, int fromStart, int fromEnd, int[] to, int toStart, int toEnd, int alphabetSize, int[] matches) {
+        int n = fromEnd - fromStart;
+        int m = toEnd - toStart;
+        int words = (n + 63) >>> 6;
+
+        // the sequences are reversed, so the trace back, which goes from the
+        // end, finds the earliest matches, as the other engines do.
+        long[][] positions = getPositions(from, fromStart, fromEnd, alphabetSize, true);
+
+        // each row has a 0 bit where the LCS of the prefixes increases:
+        long[] rows = new long[m * words];
+        long[] row = new long[words];
+        Arrays.fill(row, -1L);
+
+        for (int j = 0; j < m; ++j) {
+            int sym = to[toEnd - 1 - j];
+            addRow(row, sym < 0 ? null : positions[sym]);
+            System.arraycopy(row, 0, rows, j * words, words);
+        }
+
+        int i = n - 1;
+        int j = m - 1;
+        while (i >= 0 && j >= 0) {
+            int fromIdx = fromEnd - 1 - i;
+            int toIdx = toEnd - 1 - j;
+            if (from[fromIdx] == to[toIdx]) {
+                matches[fromIdx] = toIdx;
+                --i;
+                --j;
+            }
+            else if ((rows[j * words + (i >>> 6)] & (1L << (i & 63))) != 0) {
+                // the LCS does not include from[i]:
+                --i;
+            }
+            else {
+                --j;
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the LCS of the "to" range with each prefix of the
+     * "from" range, by its length, or, if <code>reverse</code>, with each
+     * suffix, by its length. Only the last row is kept.
+     */
+    private static int[] getScores(int[] from, int fromStart, int fromEnd, int[] to, int toStart, int toEnd, int alphabetSize, boolean reverse) {
+        int n = fromEnd - fromStart;
+        int m = toEnd - toStart;
+        long[][] positions = getPositions(from, fromStart, fromEnd, alphabetSize, reverse);
+
+        long[] row = new long[(n + 63) >>> 6];
+        Arrays.fill(row, -1L);
+
+        for (int j = 0; j < m; ++j) {
+            int sym = to[reverse ? toEnd - 1 - j : toStart + j];
+            addRow(row, sym < 0 ? null : positions[sym]);
+        }
+
+        int[] scores = new int[n + 1];
+        for (int i = 0; i < n; ++i) {
+            scores[i + 1] = scores[i] + ((row[i >>> 6] & (1L << (i & 63))) == 0 ? 1 : 0);
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the positions of each symbol in the "from" range, as bit
+     * vectors, with the range reversed if <code>reverse</code>. Symbols not
+     * in the range have no vector.
+     */
+    private static long[][] getPositions(int[] from, int fromStart, int fromEnd, int alphabetSize, boolean reverse) {
+        int n = fromEnd - fromStart;
+        int words = (n + 63) >>> 6;
+
+        long[][] positions = new long[alphabetSize][];
+        for (int i = 0; i < n; ++i) {
+            int sym = from[reverse ? fromEnd - 1 - i : fromStart + i];
+            if (positions[sym] == null) {
+                positions[sym] = new long[words];
+            }
+            positions[sym][i >>> 6] |= 1L << (i & 63);
+        }
+        return positions;
+    }
+
+    /**
+     * Updates the row for the next element of "to", which is at the
+     * positions given, or at none if <code>pos</code> is null.
+     */
+    private static void addRow(long[] row, long[] pos) {
+        if (pos == null) {
+            return;
+        }
+
+        long carry = 0;
+        for (int w = 0; w < row.length; ++w) {
+            long v = row[w];
+            long u = v & pos[w];
+            long sum = v + u;
+            long next = sum + carry;
+            carry = isUnsignedLess(sum, v) || isUnsignedLess(next, sum) ? 1 : 0;
+            row[w] = next | (v & ~pos[w]);
+        }
+    }
+
+    /**
+     * Returns whether <code>x</code> is less than <code>y</code>, treating
+     * both as unsigned.
+     */
+    private static boolean isUnsignedLess(long x, long y) {
+        return (x ^ Long.MIN_VALUE) < (y ^ Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,60 @@
+package org.incava.diff;
+
+import java.util.AbstractList;
+
+/**
+ * Compares two arrays of bytes, using the bit-parallel LCS. The bytes are not
+ * boxed.
+ */
+public class ByteDiff extends Diff<Byte> {
+    /**
+     * A view of the bytes as a list, for <code>Differ</code>, which only uses
+     * their number.
+     */
+    protected static class ByteList extends AbstractList<Byte> {
+        private final byte[] bytes;
+
+        public ByteList(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public Byte get(int index) {
+            return bytes[index];
+        }
+
+        public int size() {
+            return bytes.length;
+        }
+    }
+
+    /**
+     * The source bytes, AKA the "from" values.
+     */
+    private final byte[] from;
+
+    /**
+     * The target bytes, AKA the "to" values.
+     */
+    private final byte[] to;
+
+    /**
+     * Constructs the ByteDiff object for the two arrays.
+     */
+    public ByteDiff(byte[] from, byte[] to) {
+        super(new ByteList(from), new ByteList(to));
+        this.from = from;
+        this.to = to;
+    }
+
+    protected Alignment getAlignment() {
+        return new Alignment(new BitParallelLCS(from, to).getMatchArray(), true);
+    }
+
+    protected ElementMatcher getMatcher() {
+        return new ElementMatcher() {
+            public boolean matches(int fromIdx, int toIdx) {
+                return from[fromIdx] == to[toIdx];
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package org.incava.diff;
+
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+
+/**
+ * Compares two sequences of characters, such as the text of two lines, using
+ * the bit-parallel LCS. The characters are not boxed.
+ */
+public class CharDiff extends Diff<Character> {
+    /**
+     * A view of the characters as a list, for <code>Differ</code>, which
+     * only uses their number.
+     */
+    protected static class CharList extends AbstractList<Character> {
+        private final CharSequence chars;
+
+        public CharList(CharSequence chars) {
+            this.chars = chars;
+        }
+
+        public Character get(int index) {
+            return chars.charAt(index);
+        }
+
+        public int size() {
+            return chars.length();
+        }
+    }
+
+    /**
+     * The source characters, AKA the "from" values.
+     */
+    private final CharSequence from;
+
+    /**
+     * The target characters, AKA the "to" values.
+     */
+    private final CharSequence to;
+
+    /**
+     * Constructs the CharDiff object for the two arrays.
+     */
+    public CharDiff(char[] from, char[] to) {
+        this(CharBuffer.wrap(from), CharBuffer.wrap(to));
+    }
+
+    /**
+     * Constructs the CharDiff object for the two character sequences.
+     */
+    public CharDiff(CharSequence from, CharSequence to) {
+        super(new CharList(from), new CharList(to));
+        this.from = from;
+        this.to = to;
+    }
+
+    protected Alignment getAlignment() {
+        return new Alignment(new BitParallelLCS(from, to).getMatchArray(), true);
+    }
+
+    protected ElementMatcher getMatcher() {
+        return new ElementMatcher() {
+            public boolean matches(int fromIdx, int toIdx) {
+                return from.charAt(fromIdx) == to.charAt(toIdx);
+            }
+        };
+    }
+}
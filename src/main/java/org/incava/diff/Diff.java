@@ -51,6 +51,23 @@ public class Diff <T extends Object> extends Differ<T, Difference> {
         super(a, b, comp);
     }
 
+    /**
+     * Constructs the Diff object for the two arrays, using the given comparator
+     * and engine.
+     */
+    public Diff(T[] a, T[] b, Comparator<T> comp, DiffEngine engine) {
+        this(Arrays.asList(a), Arrays.asList(b), comp, engine);
+    }
+
+    /**
+     * Constructs the Diff object for the two collections, using the given
+     * comparator and engine, such as <code>MyersEngine</code> for inputs with
+     * few differences.
+     */
+    public Diff(List<T> a, List<T> b, Comparator<T> comp, DiffEngine engine) {
+        super(a, b, comp, engine);
+    }
+
     /**
      * Returns a legacy <code>Difference</code> See <code>Differ</code> to
      * return a subclass of Difference.
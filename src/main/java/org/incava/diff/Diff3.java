@@ -0,0 +1,313 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Merges two collections, "ours" and "theirs", that were both changed from a
+ * common base, as the Unix "diff3" program does. The matches of the base with
+ * each are found by the engine, and then walked together in one pass, which
+ * splits the collections into regions: stable, where all three are the same;
+ * clean, where only one side, or both in the same way, changed the base; and
+ * conflicts, where both changed it differently.
+ *
+ * <p>The pass goes by the runs of the two alignments, so apart from the
+ * engine, its cost is in proportion to the number of changes, and to the size
+ * of the changed regions, which are compared to decide whether they are
+ * clean, and not to the size of the collections.</p>
+ *
+ * <p>With an executor, the two alignments are found at the same time, so the
+ * engine must then be safe for use by two threads. The regions from
+ * <code>execute()</code> are kept, so that <code>hasConflicts</code> does not
+ * merge again.</p>
+ */
+public class Diff3<ObjectType> {
+    /**
+     * The common base.
+     */
+    private final List<ObjectType> base;
+
+    /**
+     * Our changes to the base.
+     */
+    private final List<ObjectType> ours;
+
+    /**
+     * Their changes to the base.
+     */
+    private final List<ObjectType> theirs;
+
+    /**
+     * The comparator used, if any.
+     */
+    private final Comparator<ObjectType> comparator;
+
+    /**
+     * The engine that finds the matches with the base.
+     */
+    private final DiffEngine engine;
+
+    /**
+     * The executor for finding the alignments at the same time, or null.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The regions from <code>execute()</code>, or null until it is first run.
+     */
+    private List<MergeRegion> regions;
+
+    /**
+     * The state of one pass over the alignments, which passes the regions to
+     * the visitor.
+     */
+    private class Pass {
+        private final MergeVisitor visitor;
+
+        /**
+         * Whether the current region is stable, and not yet passed to the
+         * visitor, so that adjacent stable regions are joined.
+         */
+        private boolean pending;
+
+        private int stableBase;
+
+        private int stableOurs;
+
+        private int stableTheirs;
+
+        /**
+         * The ends of the last region.
+         */
+        private int baseEnd;
+
+        private int oursEnd;
+
+        private int theirsEnd;
+
+        public Pass(MergeVisitor visitor) {
+            this.visitor = visitor;
+            this.pending = false;
+            this.baseEnd = 0;
+            this.oursEnd = 0;
+            this.theirsEnd = 0;
+        }
+
+        /**
+         * Handles the stable run of the given length, in base positions from
+         * <code>start</code> to <code>end</code>, exclusive, preceded by the
+         * unstable region from the end of the last one, if it is not empty.
+         */
+        public void onStable(int start, int end, int oursStart, int theirsStart) {
+            onUnstable(start, oursStart, theirsStart);
+            extendStable(end, oursStart + end - start, theirsStart + end - start);
+        }
+
+        /**
+         * Emits the region from the end of the last one to the given ends,
+         * exclusive, if it is not empty, after the stable region before it.
+         * If neither side changed the base there, the region is instead
+         * joined to the stable region.
+         */
+        public void onUnstable(int baseTo, int oursTo, int theirsTo) {
+            if (baseTo == baseEnd && oursTo == oursEnd && theirsTo == theirsEnd) {
+                return;
+            }
+
+            boolean oursChanged = !rangeEquals(base, baseEnd, baseTo, ours, oursEnd, oursTo);
+            boolean theirsChanged = !rangeEquals(base, baseEnd, baseTo, theirs, theirsEnd, theirsTo);
+            int type;
+            if (!theirsChanged) {
+                if (!oursChanged) {
+                    extendStable(baseTo, oursTo, theirsTo);
+                    return;
+                }
+                type = MergeRegion.OURS;
+            }
+            else if (!oursChanged) {
+                type = MergeRegion.THEIRS;
+            }
+            else if (rangeEquals(ours, oursEnd, oursTo, theirs, theirsEnd, theirsTo)) {
+                type = MergeRegion.BOTH;
+            }
+            else {
+                type = MergeRegion.CONFLICT;
+            }
+
+            flushStable();
+            visitor.onRegion(type, baseEnd, baseTo, oursEnd, oursTo, theirsEnd, theirsTo);
+            baseEnd = baseTo;
+            oursEnd = oursTo;
+            theirsEnd = theirsTo;
+        }
+
+        /**
+         * Extends the stable region, starting it at the end of the last region
+         * if there is none, to the given ends, exclusive.
+         */
+        private void extendStable(int baseTo, int oursTo, int theirsTo) {
+            if (!pending) {
+                pending = true;
+                stableBase = baseEnd;
+                stableOurs = oursEnd;
+                stableTheirs = theirsEnd;
+            }
+            baseEnd = baseTo;
+            oursEnd = oursTo;
+            theirsEnd = theirsTo;
+        }
+
+        /**
+         * Emits the pending stable region, if any.
+         */
+        public void flushStable() {
+            if (pending) {
+                visitor.onRegion(MergeRegion.STABLE, stableBase, baseEnd, stableOurs, oursEnd, stableTheirs, theirsEnd);
+                pending = false;
+            }
+        }
+    }
+
+    /**
+     * Creates the merge of the three arrays, using the default comparison
+     * mechanism.
+     */
+    public Diff3(ObjectType[] base, ObjectType[] ours, ObjectType[] theirs) {
+        this(Arrays.asList(base), Arrays.asList(ours), Arrays.asList(theirs));
+    }
+
+    /**
+     * Creates the merge of the three collections, using the default comparison
+     * mechanism.
+     */
+    public Diff3(List<ObjectType> base, List<ObjectType> ours, List<ObjectType> theirs) {
+        this(base, ours, theirs, null, new LCSEngine(), null);
+    }
+
+    /**
+     * Creates the merge of the three collections, using the given comparator
+     * and engine, and finding the two alignments at the same time with the
+     * executor, if it is not null.
+     */
+    public Diff3(List<ObjectType> base, List<ObjectType> ours, List<ObjectType> theirs, Comparator<ObjectType> comp, DiffEngine engine, ExecutorService executor) {
+        this.base = base;
+        this.ours = ours;
+        this.theirs = theirs;
+        this.comparator = comp;
+        this.engine = engine;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the regions of the merge, in order. The merge is done the first
+     * time, and the regions are kept.
+     */
+    public List<MergeRegion> execute() {
+        if (regions == null) {
+            final List<MergeRegion> found = new ArrayList<MergeRegion>();
+            execute(new MergeVisitor() {
+                public void onRegion(int type, int baseStart, int baseEnd, int oursStart, int oursEnd, int theirsStart, int theirsEnd) {
+                    found.add(new MergeRegion(type, baseStart, baseEnd, oursStart, oursEnd, theirsStart, theirsEnd));
+                }
+            });
+            regions = Collections.unmodifiableList(found);
+        }
+        return regions;
+    }
+
+    /**
+     * Passes the regions of the merge to the visitor, in order, without
+     * creating them as objects.
+     */
+    public void execute(MergeVisitor visitor) {
+        Alignment[] alignments = getAlignments();
+        Alignment oursAlignment = alignments[0];
+        Alignment theirsAlignment = alignments[1];
+        Pass pass = new Pass(visitor);
+
+        // the base positions matched by both sides are the intersections of
+        // the runs of the two alignments:
+        int oursRun = 0;
+        int theirsRun = 0;
+        while (oursRun < oursAlignment.getRunCount() && theirsRun < theirsAlignment.getRunCount()) {
+            int oursFrom = oursAlignment.getFromStart(oursRun);
+            int oursTo = oursFrom + oursAlignment.getLength(oursRun);
+            int theirsFrom = theirsAlignment.getFromStart(theirsRun);
+            int theirsTo = theirsFrom + theirsAlignment.getLength(theirsRun);
+
+            int start = Math.max(oursFrom, theirsFrom);
+            int end = Math.min(oursTo, theirsTo);
+            if (start < end) {
+                int oursStart = oursAlignment.getToStart(oursRun) + start - oursFrom;
+                int theirsStart = theirsAlignment.getToStart(theirsRun) + start - theirsFrom;
+                pass.onStable(start, end, oursStart, theirsStart);
+            }
+
+            if (oursTo <= theirsTo) {
+                ++oursRun;
+            }
+            else {
+                ++theirsRun;
+            }
+        }
+
+        pass.onUnstable(base.size(), ours.size(), theirs.size());
+        pass.flushStable();
+    }
+
+    /**
+     * Returns whether any region of the merge is a conflict, from the regions
+     * of <code>execute()</code>.
+     */
+    public boolean hasConflicts() {
+        for (MergeRegion region : execute()) {
+            if (!region.isClean()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the alignments of the base with "ours" and with "theirs",
+     * finding the latter with the executor, if there is one, while the former
+     * is found on this thread.
+     */
+    protected Alignment[] getAlignments() {
+        if (executor == null) {
+            return new Alignment[] { engine.getAlignment(base, ours, comparator), engine.getAlignment(base, theirs, comparator) };
+        }
+
+        Future<Alignment> future = executor.submit(new Callable<Alignment>() {
+            public Alignment call() {
+                return engine.getAlignment(base, theirs, comparator);
+            }
+        });
+        Alignment oursAlignment = engine.getAlignment(base, ours, comparator);
+        return new Alignment[] { oursAlignment, Tasks.getResult(future) };
+    }
+
+    /**
+     * Returns whether the two ranges, with exclusive ends, have the same
+     * elements.
+     */
+    protected boolean rangeEquals(List<ObjectType> x, int xStart, int xEnd, List<ObjectType> y, int yStart, int yEnd) {
+        if (xEnd - xStart != yEnd - yStart) {
+            return false;
+        }
+        // decided by base, the "from" of both alignments:
+        boolean comparable = Elements.isComparable(comparator, base);
+        for (int idx = 0; idx < xEnd - xStart; ++idx) {
+            if (!Elements.isEqual(comparator, comparable, x.get(xStart + idx), y.get(yStart + idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,206 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Diffs many pairs of collections at once, on the threads of an executor. The
+ * pairs are started in order of their estimated cost, the largest first, so
+ * that a large pair started last does not leave the other threads idle at the
+ * end. The results are returned in the order in which the pairs were added.
+ *
+ * <p>Without an engine, each diff uses an <code>LCSEngine</code> with the
+ * workspace of its thread, so that many small diffs reuse their buffers. An
+ * engine that is given is shared by the threads, so it must be safe for
+ * that.</p>
+ */
+public class DiffBatch<ObjectType> {
+    /**
+     * Receives the differences of each pair as it is done.
+     */
+    public interface Listener {
+        /**
+         * Invoked, on the thread that did the diff, with the index of the pair
+         * and its differences.
+         */
+        public void onComplete(int index, List<Difference> differences);
+    }
+
+    /**
+     * The "from" collections.
+     */
+    private final List<List<ObjectType>> froms;
+
+    /**
+     * The "to" collections.
+     */
+    private final List<List<ObjectType>> tos;
+
+    /**
+     * The comparator used, if any.
+     */
+    private final Comparator<ObjectType> comparator;
+
+    /**
+     * The engine, or null for an <code>LCSEngine</code> for each thread.
+     */
+    private final DiffEngine engine;
+
+    /**
+     * Creates the batch, comparing the elements with <code>equals</code> and
+     * <code>compareTo</code>.
+     */
+    public DiffBatch() {
+        this(null, null);
+    }
+
+    /**
+     * Creates the batch, using the given comparator and engine, either of
+     * which may be null.
+     */
+    public DiffBatch(Comparator<ObjectType> comp, DiffEngine engine) {
+        this.froms = new ArrayList<List<ObjectType>>();
+        this.tos = new ArrayList<List<ObjectType>>();
+        this.comparator = comp;
+        this.engine = engine;
+    }
+
+    /**
+     * Adds the pair of collections, returning its index.
+     */
+    public int add(List<ObjectType> from, List<ObjectType> to) {
+        froms.add(from);
+        tos.add(to);
+        return froms.size() - 1;
+    }
+
+    /**
+     * Adds the pair of arrays, returning its index.
+     */
+    public int add(ObjectType[] from, ObjectType[] to) {
+        return add(Arrays.asList(from), Arrays.asList(to));
+    }
+
+    /**
+     * Returns the number of pairs.
+     */
+    public int size() {
+        return froms.size();
+    }
+
+    /**
+     * Diffs the pairs, with a thread for each processor, and returns their
+     * differences in the order of the pairs.
+     */
+    public List<List<Difference>> execute() {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return execute(executor);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Diffs the pairs with the executor, and returns their differences in the
+     * order of the pairs.
+     */
+    public List<List<Difference>> execute(ExecutorService executor) {
+        return execute(executor, null);
+    }
+
+    /**
+     * Diffs the pairs with the executor, passing the differences of each to
+     * the listener, if not null, as it is done. This returns when all are
+     * done, with their differences in the order of the pairs. If a diff
+     * fails, the pairs not yet done are cancelled, and its exception is
+     * thrown.
+     */
+    public List<List<Difference>> execute(ExecutorService executor, Listener listener) {
+        List<Future<List<Difference>>> futures = new ArrayList<Future<List<Difference>>>(Collections.nCopies(size(), (Future<List<Difference>>)null));
+        boolean done = false;
+        try {
+            for (int index : getOrder()) {
+                futures.set(index, executor.submit(new PairTask(index, listener)));
+            }
+
+            List<List<Difference>> results = new ArrayList<List<Difference>>(size());
+            for (Future<List<Difference>> future : futures) {
+                results.add(Tasks.getResult(future));
+            }
+            done = true;
+            return results;
+        }
+        finally {
+            if (!done) {
+                for (Future<List<Difference>> future : futures) {
+                    if (future != null) {
+                        future.cancel(true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the indices of the pairs, in decreasing order of their cost.
+     */
+    protected Integer[] getOrder() {
+        final long[] costs = new long[size()];
+        Integer[] order = new Integer[size()];
+        for (int index = 0; index < order.length; ++index) {
+            costs[index] = estimateCost(froms.get(index), tos.get(index));
+            order[index] = index;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer x, Integer y) {
+                return costs[x] > costs[y] ? -1 : (costs[x] < costs[y] ? 1 : x.compareTo(y));
+            }
+        });
+        return order;
+    }
+
+    /**
+     * Returns the estimated cost of the diff of the two collections, as the
+     * product of their sizes plus their sizes, which is the most that an
+     * engine does. This is from the sizes alone, so that the pairs are
+     * started without first reading their elements on this thread.
+     */
+    protected long estimateCost(List<ObjectType> from, List<ObjectType> to) {
+        long n = from.size();
+        long m = to.size();
+        return n * m + n + m;
+    }
+
+    /**
+     * Diffs one pair.
+     */
+    protected class PairTask implements Callable<List<Difference>> {
+        private final int index;
+
+        private final Listener listener;
+
+        public PairTask(int index, Listener listener) {
+            this.index = index;
+            this.listener = listener;
+        }
+
+        public List<Difference> call() {
+            DiffEngine eng = engine == null ? new LCSEngine(DiffWorkspace.forCurrentThread()) : engine;
+            List<Difference> differences = new Diff<ObjectType>(froms.get(index), tos.get(index), comparator, eng).execute();
+            if (listener != null) {
+                listener.onComplete(index, differences);
+            }
+            return differences;
+        }
+    }
+}
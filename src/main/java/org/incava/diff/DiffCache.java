@@ -0,0 +1,558 @@
+package org.incava.diff;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the differences between collections, keyed by a SHA-256
+ * fingerprint of their contents, the differ, the comparator, and the engine,
+ * as used by <code>Differ.execute(DiffCache)</code>. The differences are kept
+ * as arrays of their points, from which <code>Differ</code> creates them
+ * again, so a hit costs the fingerprint and the number of differences,
+ * without finding the matches.
+ *
+ * <p>Entries are kept in memory up to a number of entries and a total number
+ * of points, evicting the least recently used. With a directory, each entry is
+ * also written there as a small file, so entries survive the cache and the
+ * JVM. Files are evicted, least recently used first, when their total size
+ * exceeds a limit.</p>
+ *
+ * <p>The elements are fingerprinted by their bytes from the codec, which must
+ * give equal elements the same bytes, except for those of
+ * <code>IntDiff</code> and <code>LongDiff</code>, which are fingerprinted
+ * from their arrays. Engines are identified by their <code>getKey</code>.
+ * Comparators are identified by their class, so only those without instance
+ * fields are, as their state is not known; pairs with any other comparator
+ * are not cached.</p>
+ */
+public class DiffCache<ObjectType> {
+    /**
+     * The default maximum number of entries in memory.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    /**
+     * The default maximum number of points, four per difference, in memory.
+     */
+    public static final long DEFAULT_MAX_POINTS = 1L << 22;
+
+    /**
+     * The default maximum number of bytes of the files on disk.
+     */
+    public static final long DEFAULT_MAX_DISK_BYTES = 1L << 28;
+
+    /**
+     * The first value of a file on disk, to recognize it.
+     */
+    protected static final int MAGIC = 0x6a646966;
+
+    /**
+     * The suffix of the files on disk.
+     */
+    protected static final String SUFFIX = ".diff";
+
+    /**
+     * The fingerprint of a pair of collections.
+     */
+    public static class Key {
+        private final byte[] digest;
+
+        public Key(byte[] digest) {
+            this.digest = digest;
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(digest, ((Key)obj).digest);
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(digest);
+        }
+
+        /**
+         * Returns the fingerprint as hexadecimal digits.
+         */
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The differences of a pair, as delStart, delEnd, addStart, and addEnd for
+     * each, and whether they are minimal.
+     */
+    public static class Entry {
+        private final int[] points;
+
+        private final boolean minimal;
+
+        public Entry(int[] points, boolean minimal) {
+            this.points = points;
+            this.minimal = minimal;
+        }
+
+        /**
+         * Returns the points of the differences, four for each.
+         */
+        public int[] getPoints() {
+            return points;
+        }
+
+        /**
+         * Returns whether the differences are minimal.
+         */
+        public boolean isMinimal() {
+            return minimal;
+        }
+    }
+
+    /**
+     * The bytes of the elements, for the fingerprint.
+     */
+    private final ElementCodec<ObjectType> codec;
+
+    /**
+     * The entries in memory, least recently used first.
+     */
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /**
+     * The maximum number of entries in memory.
+     */
+    private final int maxEntries;
+
+    /**
+     * The maximum number of points in memory.
+     */
+    private final long maxPoints;
+
+    /**
+     * The directory for the entries on disk, or null.
+     */
+    private final File directory;
+
+    /**
+     * The maximum number of bytes of the files on disk.
+     */
+    private final long maxDiskBytes;
+
+    /**
+     * The number of points in memory.
+     */
+    private long points;
+
+    /**
+     * The number of bytes of the files on disk, as of the last time they
+     * were listed, and as written since.
+     */
+    private long diskBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong diskHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates the cache in memory only, with the default limits, and the
+     * elements fingerprinted by their bytes from the codec.
+     */
+    public DiffCache(ElementCodec<ObjectType> codec) {
+        this(codec, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_POINTS, null);
+    }
+
+    /**
+     * Creates the cache with the given limits for memory, and, if
+     * <code>directory</code> is not null, with the entries also kept there,
+     * up to the default number of bytes.
+     */
+    public DiffCache(ElementCodec<ObjectType> codec, int maxEntries, long maxPoints, File directory) {
+        this(codec, maxEntries, maxPoints, directory, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * Creates the cache with the given limits for memory, and, if
+     * <code>directory</code> is not null, with the entries also kept there,
+     * up to <code>maxDiskBytes</code>.
+     */
+    public DiffCache(ElementCodec<ObjectType> codec, int maxEntries, long maxPoints, File directory, long maxDiskBytes) {
+        if (codec == null) {
+            throw new IllegalArgumentException("the cache needs a codec for the elements");
+        }
+        this.codec = codec;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+        this.maxEntries = maxEntries;
+        this.maxPoints = maxPoints;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.points = 0;
+        this.diskBytes = 0;
+        if (directory != null) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IllegalArgumentException("cannot create directory: " + directory);
+            }
+            for (File file : listFiles()) {
+                diskBytes += file.length();
+            }
+        }
+    }
+
+    /**
+     * Returns the key for the pair of collections, compared by the given
+     * differ, comparator, and engine, or null if the comparator has state, so
+     * the pair cannot be cached. The class of the differ is part of the key,
+     * since subclasses such as <code>CharDiff</code> may find the matches
+     * otherwise than with the engine.
+     */
+    public Key createKey(Class<?> differClass, List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, DiffEngine engine) {
+        if (comp != null && hasState(comp.getClass())) {
+            return null;
+        }
+
+        MessageDigest digest = createDigest();
+        updateDigest(digest, differClass.getName());
+        updateDigest(digest, comp == null ? "" : comp.getClass().getName());
+        updateDigest(digest, engine == null ? "" : engine.getKey());
+        for (List<ObjectType> list : Arrays.<List<ObjectType>>asList(from, to)) {
+            updateDigest(digest, list.size());
+            for (ObjectType element : list) {
+                updateDigest(digest, codec.encode(element));
+            }
+        }
+        return new Key(digest.digest());
+    }
+
+    /**
+     * Returns the key for a pair compared without a comparator by the given
+     * differ and engine, from the bytes of their values, such as of ranges of
+     * primitive arrays, which are fingerprinted without the codec.
+     */
+    public Key createKey(Class<?> differClass, ByteBuffer from, ByteBuffer to, DiffEngine engine) {
+        MessageDigest digest = createDigest();
+        updateDigest(digest, differClass.getName());
+        updateDigest(digest, "");
+        updateDigest(digest, engine == null ? "" : engine.getKey());
+        for (ByteBuffer bytes : Arrays.asList(from, to)) {
+            updateDigest(digest, bytes.remaining());
+            digest.update(bytes.duplicate());
+        }
+        return new Key(digest.digest());
+    }
+
+    /**
+     * Returns whether the class, or a superclass, has instance fields.
+     */
+    protected boolean hasState(Class<?> cls) {
+        for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the string to the fingerprint, as UTF-8.
+     */
+    protected void updateDigest(MessageDigest digest, String str) {
+        updateDigest(digest, ElementCodec.UTF_8.encode(str));
+    }
+
+    /**
+     * Adds the bytes to the fingerprint, preceded by their length so that the
+     * elements are not ambiguous.
+     */
+    protected void updateDigest(MessageDigest digest, byte[] bytes) {
+        updateDigest(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * Adds the number to the fingerprint.
+     */
+    protected void updateDigest(MessageDigest digest, int value) {
+        digest.update((byte)(value >>> 24));
+        digest.update((byte)(value >>> 16));
+        digest.update((byte)(value >>> 8));
+        digest.update((byte)value);
+    }
+
+    /**
+     * Returns the entry for the key, from memory or from disk, or null if
+     * there is none.
+     */
+    public synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry;
+        }
+
+        File file = directory == null ? null : getFile(key);
+        entry = file == null ? null : read(file);
+        if (entry != null) {
+            // as the most recently used:
+            file.setLastModified(System.currentTimeMillis());
+            diskHits.incrementAndGet();
+            putInMemory(key, entry);
+            return entry;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the entry for the key, in memory, and on disk if there is a
+     * directory.
+     */
+    public synchronized void put(Key key, Entry entry) {
+        putInMemory(key, entry);
+        if (directory != null) {
+            File file = getFile(key);
+            diskBytes -= file.length();
+            if (write(file, entry)) {
+                diskBytes += file.length();
+                if (diskBytes > maxDiskBytes) {
+                    evictFiles();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries found in memory.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of entries found on disk, but not in memory.
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Returns the number of entries not found.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries in memory.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of bytes of the files on disk.
+     */
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Removes the entries from memory, leaving those on disk.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        points = 0;
+    }
+
+    /**
+     * Returns the file for the key on disk.
+     */
+    protected File getFile(Key key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    /**
+     * Returns the files of the entries on disk.
+     */
+    protected File[] listFiles() {
+        File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(SUFFIX);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Deletes the least recently used files on disk, until their total size is
+     * within the limit. The files are listed again, as other caches may use
+     * the directory.
+     */
+    protected void evictFiles() {
+        File[] files = listFiles();
+        final long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        diskBytes = 0;
+        for (int idx = 0; idx < files.length; ++idx) {
+            modified[idx] = files[idx].lastModified();
+            order[idx] = idx;
+            diskBytes += files[idx].length();
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer x, Integer y) {
+                return modified[x] < modified[y] ? -1 : (modified[x] == modified[y] ? 0 : 1);
+            }
+        });
+
+        for (int idx = 0; idx < order.length && diskBytes > maxDiskBytes; ++idx) {
+            File file = files[order[idx]];
+            long length = file.length();
+            if (file.delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+
+    private void putInMemory(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            points -= previous.getPoints().length;
+        }
+        points += entry.getPoints().length;
+
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext() && entries.size() > 1 && (entries.size() > maxEntries || points > maxPoints)) {
+            points -= it.next().getValue().getPoints().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * Reads the entry from the file, as written by <code>write</code>, or
+     * returns null if it does not exist or is not valid.
+     */
+    protected Entry read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size < 12 || size % 4 != 0 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            ByteBuffer bytes = ByteBuffer.allocate((int)size);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) < 0) {
+                    return null;
+                }
+            }
+            bytes.flip();
+
+            IntBuffer buf = bytes.asIntBuffer();
+            int count = buf.get(2);
+            if (buf.get(0) != MAGIC || count != buf.capacity() - 3) {
+                return null;
+            }
+
+            int[] pts = new int[count];
+            buf.position(3);
+            buf.get(pts);
+            return new Entry(pts, buf.get(1) != 0);
+        }
+        catch (IOException ioe) {
+            return null;
+        }
+        finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes the entry to the file, by way of a temporary file, so that a
+     * partial file is never read, and returns whether it was written.
+     * Failures are otherwise ignored, as the entry is still in memory.
+     */
+    protected boolean write(File file, Entry entry) {
+        int[] pts = entry.getPoints();
+        ByteBuffer bytes = ByteBuffer.allocate(4 * (pts.length + 3));
+        bytes.asIntBuffer().put(MAGIC).put(entry.isMinimal() ? 1 : 0).put(pts.length).put(pts);
+
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        boolean written = false;
+        try {
+            out = new FileOutputStream(tmp);
+            FileChannel channel = out.getChannel();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            written = true;
+        }
+        catch (IOException ioe) {
+        }
+        finally {
+            close(out);
+        }
+
+        if (!written) {
+            tmp.delete();
+            return false;
+        }
+        else if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("SHA-256 is not available", nsae);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            }
+            catch (IOException ioe) {
+            }
+        }
+    }
+}
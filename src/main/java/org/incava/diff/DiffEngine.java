@@ -0,0 +1,24 @@
+package org.incava.diff;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The strategy by which <code>Differ</code> finds the matching elements
+ * between the "from" and "to" collections. The default is
+ * <code>LCSEngine</code>, which uses the Hunt-Szymanski longest common
+ * subsequences of <code>LCS</code>.
+ */
+public interface DiffEngine {
+    /**
+     * Returns the matches between the two collections.
+     */
+    public <ObjectType> Alignment getAlignment(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp);
+
+    /**
+     * Returns the name of the engine and of the parameters that affect its
+     * matches, so that engines with the same key find the same matches, as
+     * used by <code>DiffCache</code>.
+     */
+    public String getKey();
+}
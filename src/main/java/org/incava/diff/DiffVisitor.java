@@ -0,0 +1,15 @@
+package org.incava.diff;
+
+/**
+ * Receives the differences from <code>Differ.execute(DiffVisitor)</code> as
+ * each is found, instead of in a list, so that they can be written out, or
+ * otherwise consumed, without being kept. The points are as for
+ * <code>Difference</code>, with <code>Difference.NONE</code> for the end of
+ * an empty deletion or addition.
+ */
+public interface DiffVisitor {
+    /**
+     * Invoked for each difference, in order.
+     */
+    public void onDifference(int delStart, int delEnd, int addStart, int addEnd);
+}
@@ -0,0 +1,147 @@
+package org.incava.diff;
+
+/**
+ * The buffers used by <code>LCS</code>, kept so that they can be reused by
+ * one diff after another, instead of being allocated for each. The buffers
+ * grow as needed, and keep their size, so after the first diffs, those of
+ * similar sizes allocate only the map of elements of <code>LCS</code> and
+ * the results.
+ *
+ * <p>A workspace is used by one diff at a time, so it should not be shared
+ * between threads. <code>forCurrentThread</code> returns one for each
+ * thread.</p>
+ */
+public class DiffWorkspace {
+    /**
+     * The size, as the number of <code>int</code> values, above which a buffer
+     * is not kept, so that one large diff does not hold its memory
+     * afterward.
+     */
+    public static final int DEFAULT_MAX_RETAINED = 1 << 20;
+
+    /**
+     * The buffer for the symbols of "from".
+     */
+    public static final int FROM_SYMBOLS = 0;
+
+    /**
+     * The buffer for the symbols of "to".
+     */
+    public static final int TO_SYMBOLS = 1;
+
+    /**
+     * The buffer for the start of the positions of each symbol.
+     */
+    public static final int STARTS = 2;
+
+    /**
+     * The buffer for the next position of each symbol.
+     */
+    public static final int NEXT = 3;
+
+    /**
+     * The buffer for the positions in "to", by symbol.
+     */
+    public static final int POSITIONS = 4;
+
+    /**
+     * The buffer for the matches.
+     */
+    public static final int MATCHES = 5;
+
+    private static final ThreadLocal<DiffWorkspace> WORKSPACES = new ThreadLocal<DiffWorkspace>() {
+        protected DiffWorkspace initialValue() {
+            return new DiffWorkspace();
+        }
+    };
+
+    /**
+     * Returns the workspace for the current thread.
+     */
+    public static DiffWorkspace forCurrentThread() {
+        return WORKSPACES.get();
+    }
+
+    /**
+     * The buffers, by their number.
+     */
+    private final int[][] buffers;
+
+    /**
+     * The size above which a buffer is not kept.
+     */
+    private final int maxRetained;
+
+    /**
+     * The thresholds, reused.
+     */
+    private Thresholds thresholds;
+
+    /**
+     * The links, reused.
+     */
+    private LCSTable links;
+
+    /**
+     * Creates the workspace, keeping buffers of up to the default size.
+     */
+    public DiffWorkspace() {
+        this(DEFAULT_MAX_RETAINED);
+    }
+
+    /**
+     * Creates the workspace, keeping buffers of up to the given size.
+     */
+    public DiffWorkspace(int maxRetained) {
+        this.buffers = new int[MATCHES + 1][];
+        this.maxRetained = maxRetained;
+        this.thresholds = null;
+        this.links = null;
+    }
+
+    /**
+     * Returns the buffer with the given number, with at least
+     * <code>length</code> values, which are not cleared.
+     */
+    public int[] getBuffer(int buffer, int length) {
+        int[] ary = buffers[buffer];
+        if (ary == null || ary.length < length) {
+            ary = new int[length];
+            buffers[buffer] = length <= maxRetained ? ary : null;
+        }
+        return ary;
+    }
+
+    /**
+     * Returns the thresholds, cleared.
+     */
+    public Thresholds getThresholds() {
+        if (thresholds == null || thresholds.capacity() > maxRetained) {
+            thresholds = new Thresholds();
+        }
+        thresholds.clear();
+        return thresholds;
+    }
+
+    /**
+     * Returns the links, cleared.
+     */
+    public LCSTable getLinks() {
+        if (links == null || 3 * links.capacity() > maxRetained) {
+            links = new LCSTable();
+        }
+        links.clear();
+        return links;
+    }
+
+    /**
+     * Releases the buffers, such as after an unusually large diff.
+     */
+    public void release() {
+        for (int idx = 0; idx < buffers.length; ++idx) {
+            buffers[idx] = null;
+        }
+        thresholds = null;
+        links = null;
+    }
+}
@@ -0,0 +1,401 @@
+package org.incava.diff;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes differences in the unified or context format of the Unix "diff"
+ * program, as they are passed from <code>Differ.execute(DiffVisitor)</code>.
+ * Differences within twice the context of each other are joined into one
+ * hunk, and only the points of the differences of the current hunk are kept,
+ * until it is written. The elements are written by their
+ * <code>toString</code>, one per line, through a buffer that is reused, to a
+ * <code>Writer</code>, or encoded to an <code>OutputStream</code> or a
+ * channel.
+ *
+ * <p>The differences are written by <code>write(Differ)</code>, or by
+ * passing the writer to <code>Differ.execute(DiffVisitor)</code>, and then
+ * calling <code>finish</code>. As <code>onDifference</code> cannot throw an
+ * <code>IOException</code>, it throws it as a
+ * <code>RuntimeException</code>.</p>
+ */
+public class DiffWriter<ObjectType> implements DiffVisitor {
+    /**
+     * The unified format, of "diff -u".
+     */
+    public static final int UNIFIED = 0;
+
+    /**
+     * The context format, of "diff -c".
+     */
+    public static final int CONTEXT = 1;
+
+    /**
+     * The default number of lines of context.
+     */
+    public static final int DEFAULT_CONTEXT = 3;
+
+    /**
+     * The number of characters buffered before being written.
+     */
+    protected static final int BUFFER_SIZE = 8192;
+
+    private final List<ObjectType> from;
+
+    private final List<ObjectType> to;
+
+    private final int format;
+
+    private final int context;
+
+    /**
+     * The writer, or null if writing to the channel.
+     */
+    private final Writer writer;
+
+    /**
+     * The channel, or null if writing to the writer.
+     */
+    private final WritableByteChannel channel;
+
+    private final CharsetEncoder encoder;
+
+    private final CharBuffer chars;
+
+    private final ByteBuffer bytes;
+
+    /**
+     * The names of the collections, for the header, or null for none.
+     */
+    private String fromName;
+
+    private String toName;
+
+    private boolean headerWritten;
+
+    /**
+     * The points of the differences of the current hunk, four for each, as
+     * the starts and ends, exclusive, of the deletion and the addition.
+     */
+    private int[] points;
+
+    private int count;
+
+    /**
+     * Creates the writer of the unified format, with the default context.
+     */
+    public DiffWriter(List<ObjectType> from, List<ObjectType> to, Writer writer) {
+        this(from, to, UNIFIED, DEFAULT_CONTEXT, writer);
+    }
+
+    /**
+     * Creates the writer of the given format and context to the writer.
+     */
+    public DiffWriter(List<ObjectType> from, List<ObjectType> to, int format, int context, Writer writer) {
+        this(from, to, format, context, writer, null, null);
+    }
+
+    /**
+     * Creates the writer of the given format and context to the stream,
+     * encoded with the charset.
+     */
+    public DiffWriter(List<ObjectType> from, List<ObjectType> to, int format, int context, OutputStream out, Charset charset) {
+        this(from, to, format, context, Channels.newChannel(out), charset);
+    }
+
+    /**
+     * Creates the writer of the given format and context to the channel,
+     * encoded with the charset.
+     */
+    public DiffWriter(List<ObjectType> from, List<ObjectType> to, int format, int context, WritableByteChannel channel, Charset charset) {
+        this(from, to, format, context, null, channel, charset);
+    }
+
+    private DiffWriter(List<ObjectType> from, List<ObjectType> to, int format, int context, Writer writer, WritableByteChannel channel, Charset charset) {
+        if (format != UNIFIED && format != CONTEXT) {
+            throw new IllegalArgumentException("format: " + format);
+        }
+        this.from = from;
+        this.to = to;
+        this.format = format;
+        this.context = Math.max(0, context);
+        this.writer = writer;
+        this.channel = channel;
+        this.chars = CharBuffer.allocate(BUFFER_SIZE);
+        if (channel == null) {
+            this.encoder = null;
+            this.bytes = null;
+        }
+        else {
+            this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.bytes = ByteBuffer.allocate((int)Math.ceil(BUFFER_SIZE * encoder.maxBytesPerChar()));
+        }
+        this.points = new int[16];
+        this.count = 0;
+    }
+
+    /**
+     * Sets the names of the collections, such as file names, to be written in
+     * the header before the first hunk. Without them, there is no header.
+     */
+    public void setNames(String fromName, String toName) {
+        this.fromName = fromName;
+        this.toName = toName;
+    }
+
+    /**
+     * Writes the differences of the differ, and flushes the output.
+     */
+    public void write(Differ<ObjectType, ?> differ) throws IOException {
+        try {
+            differ.execute(this);
+        }
+        catch (RuntimeException re) {
+            if (re.getCause() instanceof IOException) {
+                throw (IOException)re.getCause();
+            }
+            throw re;
+        }
+        finish();
+    }
+
+    /**
+     * Adds the difference to the current hunk, first writing that hunk if the
+     * difference is not within the context of it.
+     */
+    public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+        int fromStart = delStart;
+        int fromEnd = delEnd == Difference.NONE ? delStart : delEnd + 1;
+        int toStart = addStart;
+        int toEnd = addEnd == Difference.NONE ? addStart : addEnd + 1;
+
+        try {
+            if (count > 0 && fromStart - points[4 * count - 3] > 2 * context) {
+                writeHunk();
+            }
+        }
+        catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+
+        if (4 * count == points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[4 * count] = fromStart;
+        points[4 * count + 1] = fromEnd;
+        points[4 * count + 2] = toStart;
+        points[4 * count + 3] = toEnd;
+        ++count;
+    }
+
+    /**
+     * Writes the last hunk, and flushes the output, which is not closed.
+     */
+    public void finish() throws IOException {
+        if (count > 0) {
+            writeHunk();
+        }
+        flushBuffer(true);
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes the current hunk, with its context, and clears it.
+     */
+    protected void writeHunk() throws IOException {
+        if (!headerWritten && fromName != null) {
+            append(format == UNIFIED ? "--- " : "*** ").append(fromName).append('\n');
+            append(format == UNIFIED ? "+++ " : "--- ").append(toName).append('\n');
+        }
+        headerWritten = true;
+
+        // the context is the same before and after the hunk on both sides, as
+        // the elements there match:
+        int before = Math.min(context, points[0]);
+        int after = Math.min(context, from.size() - points[4 * count - 3]);
+        int fromStart = points[0] - before;
+        int fromEnd = points[4 * count - 3] + after;
+        int toStart = points[2] - before;
+        int toEnd = points[4 * count - 1] + after;
+
+        if (format == UNIFIED) {
+            append("@@ -");
+            appendUnifiedRange(fromStart, fromEnd);
+            append(" +");
+            appendUnifiedRange(toStart, toEnd);
+            append(" @@\n");
+
+            int fromIdx = fromStart;
+            for (int diff = 0; diff < count; ++diff) {
+                appendLines(" ", from, fromIdx, points[4 * diff]);
+                appendLines("-", from, points[4 * diff], points[4 * diff + 1]);
+                appendLines("+", to, points[4 * diff + 2], points[4 * diff + 3]);
+                fromIdx = points[4 * diff + 1];
+            }
+            appendLines(" ", from, fromIdx, fromEnd);
+        }
+        else {
+            append("***************\n*** ");
+            appendContextRange(fromStart, fromEnd);
+            append(" ****\n");
+            appendContextSide(from, fromStart, fromEnd, 0, "- ");
+
+            append("--- ");
+            appendContextRange(toStart, toEnd);
+            append(" ----\n");
+            appendContextSide(to, toStart, toEnd, 2, "+ ");
+        }
+
+        count = 0;
+    }
+
+    /**
+     * Writes one side of a hunk of the context format, if it has any deleted
+     * or added elements, marking those of changes with "! ".
+     */
+    private void appendContextSide(List<ObjectType> list, int start, int end, int offset, String marker) throws IOException {
+        boolean any = false;
+        for (int diff = 0; diff < count && !any; ++diff) {
+            any = points[4 * diff + offset] < points[4 * diff + offset + 1];
+        }
+        if (!any) {
+            return;
+        }
+
+        int idx = start;
+        for (int diff = 0; diff < count; ++diff) {
+            int diffStart = points[4 * diff + offset];
+            int diffEnd = points[4 * diff + offset + 1];
+            boolean change = points[4 * diff] < points[4 * diff + 1] && points[4 * diff + 2] < points[4 * diff + 3];
+            appendLines("  ", list, idx, diffStart);
+            appendLines(change ? "! " : marker, list, diffStart, diffEnd);
+            idx = diffEnd;
+        }
+        appendLines("  ", list, idx, end);
+    }
+
+    /**
+     * Writes the elements from <code>start</code> to <code>end</code>,
+     * exclusive, each preceded by the prefix.
+     */
+    private void appendLines(String prefix, List<ObjectType> list, int start, int end) throws IOException {
+        for (int idx = start; idx < end; ++idx) {
+            append(prefix).append(String.valueOf(list.get(idx))).append('\n');
+        }
+    }
+
+    /**
+     * Writes the range as "diff -u" does, as the first line and the number of
+     * lines, or only the first line if there is one, or the line before an
+     * empty range.
+     */
+    private void appendUnifiedRange(int start, int end) throws IOException {
+        if (end - start == 1) {
+            append(start + 1);
+        }
+        else {
+            append(end == start ? start : start + 1).append(',').append(end - start);
+        }
+    }
+
+    /**
+     * Writes the range as "diff -c" does, as the first and last lines, or the
+     * one line, or the line before an empty range.
+     */
+    private void appendContextRange(int start, int end) throws IOException {
+        if (end - start <= 1) {
+            append(end);
+        }
+        else {
+            append(start + 1).append(',').append(end);
+        }
+    }
+
+    private DiffWriter<ObjectType> append(int value) throws IOException {
+        // without a string, for the ranges of each hunk:
+        if (value >= 10) {
+            append(value / 10);
+        }
+        return append((char)('0' + value % 10));
+    }
+
+    private DiffWriter<ObjectType> append(CharSequence seq) throws IOException {
+        for (int idx = 0; idx < seq.length(); ++idx) {
+            append(seq.charAt(idx));
+        }
+        return this;
+    }
+
+    private DiffWriter<ObjectType> append(char ch) throws IOException {
+        if (!chars.hasRemaining()) {
+            flushBuffer(false);
+        }
+        chars.put(ch);
+        return this;
+    }
+
+    /**
+     * Writes the buffered characters, encoding them for the channel, and at
+     * the end, flushing the encoder. A high surrogate at the end of the
+     * buffer, which the encoder leaves until its low surrogate is buffered,
+     * is kept, at the start of the buffer.
+     */
+    private void flushBuffer(boolean end) throws IOException {
+        chars.flip();
+        if (writer != null) {
+            writer.write(chars.array(), 0, chars.limit());
+            chars.clear();
+            return;
+        }
+
+        CoderResult result = encoder.encode(chars, bytes, end);
+        while (true) {
+            if (result.isError()) {
+                result.throwException();
+            }
+            else if (result.isOverflow()) {
+                writeBytes();
+                result = encoder.encode(chars, bytes, end);
+            }
+            else if (end) {
+                result = encoder.flush(bytes);
+                if (result.isOverflow()) {
+                    writeBytes();
+                }
+                else {
+                    encoder.reset();
+                    break;
+                }
+            }
+            else {
+                break;
+            }
+        }
+        writeBytes();
+        chars.compact();
+    }
+
+    /**
+     * Writes the encoded bytes to the channel, and clears them.
+     */
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -3,7 +3,9 @@ package org.incava.diff;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Compares two collections, returning a list of the additions, changes, and
@@ -18,7 +20,7 @@ import java.util.List;
  * <p>The file FileDiff.java shows an example usage of this class, in an
  * application similar to the Unix "diff" program.</p>
  */
-public abstract class Differ <ObjectType extends Object, DiffType extends Difference> {
+public abstract class Differ <ObjectType extends Object, DiffType extends Difference> implements Iterable<DiffType> {
     /**
      * The source array, AKA the "from" values.
      */
@@ -34,31 +36,54 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
      */
     private final List<DiffType> diffs;
 
+    /**
+     * Whether there is a pending difference. The points are kept as
+     * <code>int</code>, so that they are not boxed for each element.
+     */
+    private boolean pending = false;
+
     /**
      * The point at which the pending deletion starts.
      */
-    private Integer delStart = null;
+    private int delStart;
 
     /**
      * The point at which the pending deletion ends.
      */
-    private Integer delEnd = null;
+    private int delEnd;
 
     /**
      * The point at which the pending addition starts.
      */
-    private Integer addStart = null;
+    private int addStart;
 
     /**
      * The point at which the pending addition ends.
      */
-    private Integer addEnd = null;
+    private int addEnd;
 
     /**
      * The comparator used, if any.
      */
     private final Comparator<ObjectType> comparator;
 
+    /**
+     * The engine that finds the matches between <code>from</code> and
+     * <code>to</code>.
+     */
+    private final DiffEngine engine;
+
+    /**
+     * The visitor to which differences are passed, or null to add them to
+     * <code>diffs</code>.
+     */
+    private DiffVisitor visitor = null;
+
+    /**
+     * Whether the matches found by the engine were minimal.
+     */
+    private boolean minimal = true;
+
     /**
      * Constructs the Differ object for the two arrays, using the given comparator.
      */
@@ -89,9 +114,26 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
      * comparator.
      */
     public Differ(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp) {
+        this(from, to, comp, new LCSEngine());
+    }
+
+    /**
+     * Constructs the Differ object for the two arrays, using the given
+     * comparator and engine.
+     */
+    public Differ(ObjectType[] from, ObjectType[] to, Comparator<ObjectType> comp, DiffEngine engine) {
+        this(Arrays.asList(from), Arrays.asList(to), comp, engine);
+    }
+
+    /**
+     * Constructs the Differ object for the two collections, using the given
+     * comparator and engine.
+     */
+    public Differ(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, DiffEngine engine) {
         this.from = from;
         this.to = to;
         this.comparator = comp;
+        this.engine = engine;
         this.diffs = new ArrayList<DiffType>();
     }
 
@@ -104,6 +146,108 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
         return diffs;
     }
 
+    /**
+     * Runs diff, passing each difference to the visitor as it is found,
+     * instead of creating and keeping them.
+     */
+    public void execute(DiffVisitor visitor) {
+        this.visitor = visitor;
+        try {
+            traverseSequences();
+            addPending();
+        }
+        finally {
+            this.visitor = null;
+        }
+    }
+
+    /**
+     * Returns the results from the cache, if there, and otherwise runs diff
+     * and adds the results to the cache. If the comparator cannot be keyed,
+     * this only runs diff.
+     */
+    public List<DiffType> execute(DiffCache<ObjectType> cache) {
+        DiffCache.Key key = createKey(cache);
+        if (key == null) {
+            return execute();
+        }
+
+        DiffCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            execute();
+            int[] points = new int[4 * diffs.size()];
+            for (int idx = 0; idx < diffs.size(); ++idx) {
+                DiffType diff = diffs.get(idx);
+                points[4 * idx] = diff.getDeletedStart();
+                points[4 * idx + 1] = diff.getDeletedEnd();
+                points[4 * idx + 2] = diff.getAddedStart();
+                points[4 * idx + 3] = diff.getAddedEnd();
+            }
+            cache.put(key, new DiffCache.Entry(points, minimal));
+        }
+        else {
+            minimal = entry.isMinimal();
+            int[] points = entry.getPoints();
+            for (int idx = 0; idx < points.length; idx += 4) {
+                diffs.add(createDifference(points[idx], points[idx + 1], points[idx + 2], points[idx + 3]));
+            }
+        }
+        return diffs;
+    }
+
+    /**
+     * Returns the key of the collections in the cache, or null if they cannot
+     * be keyed. Subclasses may override this to fingerprint the primitive
+     * arrays behind the collections, so that no element is boxed.
+     */
+    protected DiffCache.Key createKey(DiffCache<ObjectType> cache) {
+        return cache.createKey(getClass(), from, to, comparator, engine);
+    }
+
+    /**
+     * Runs diff and returns the results, if there are no more than
+     * <code>maxDistance</code> elements deleted and added, and otherwise
+     * returns null. This uses the Myers algorithm, limited to the diagonals
+     * within that distance, instead of the engine, so pairs that are too
+     * different are rejected at little cost. The elements are compared by
+     * <code>getMatcher</code>.
+     */
+    public List<DiffType> execute(int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance: " + maxDistance);
+        }
+
+        Alignment alignment = new MyersEngine().getAlignment(getMatcher(), from.size(), to.size(), maxDistance);
+        if (alignment == null) {
+            return null;
+        }
+
+        traverseSequences(alignment);
+        addPending();
+        return diffs;
+    }
+
+    /**
+     * Returns the differences, each created only as the iterator reaches it,
+     * so that a caller that stops early does not pay for the rest. The
+     * matches are found when the iterator is first used, as for
+     * <code>execute</code>; the differences are then the gaps between the
+     * runs of matches, which are the same as from
+     * <code>traverseSequences</code>.
+     */
+    public Iterator<DiffType> iterator() {
+        return new DifferenceIterator();
+    }
+
+    /**
+     * Returns whether the differences of <code>execute</code> are minimal,
+     * that is, from a longest common subsequence. This is false if the engine
+     * uses heuristics, or if it exceeded its cost limit.
+     */
+    public boolean isMinimal() {
+        return minimal;
+    }
+
     /**
      * Runs diff and returns the results.
      *
@@ -124,12 +268,14 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
      * Adds the last difference, if pending.
      */
     protected void addPending() {
-        if (delStart != null) {
-            diffs.add(createDifference(delStart, delEnd, addStart, addEnd));
-            delStart = null;
-            delEnd   = null;
-            addStart = null;
-            addEnd   = null;
+        if (pending) {
+            pending = false;
+            if (visitor == null) {
+                diffs.add(createDifference(delStart, delEnd, addStart, addEnd));
+            }
+            else {
+                visitor.onDifference(delStart, delEnd, addStart, addEnd);
+            }
         }
     }
 
@@ -139,32 +285,65 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
      * <code>onFromNotTo</code>, and <code>onToNotFrom</code>.
      */
     protected void traverseSequences() {
-        LCS<ObjectType> lcs = new LCS<ObjectType>(from, to, comparator);
-        List<Integer> matches = lcs.getMatches();
+        traverseSequences(getAlignment());
+    }
+
+    /**
+     * Traverses the sequences with the given matches, a run of consecutive
+     * matches at a time.
+     */
+    protected void traverseSequences(Alignment alignment) {
+        minimal = alignment.isMinimal();
 
         int toIdx = 0;
         int fromIdx = 0;
-        int lastMatch = matches.size() - 1;
-        
-        while (fromIdx <= lastMatch) {
-            Integer toElement = matches.get(fromIdx);
 
-            if (toElement == null) {
-                onFromNotTo(fromIdx, toIdx);
+        for (int run = 0; run < alignment.getRunCount(); ++run) {
+            int fromStart = alignment.getFromStart(run);
+            int toStart = alignment.getToStart(run);
+            int fromEnd = fromStart + alignment.getLength(run);
+
+            while (fromIdx < fromStart) {
+                onFromNotTo(fromIdx++, toIdx);
+            }
+
+            while (toIdx < toStart) {
+                onToNotFrom(fromIdx, toIdx++);
             }
-            else {
-                while (toIdx < toElement.intValue()) {
-                    onToNotFrom(fromIdx, toIdx++);
-                }
 
-                onMatch(fromIdx, toIdx++);
+            while (fromIdx < fromEnd) {
+                onMatch(fromIdx++, toIdx++);
             }
-            fromIdx++;
         }
 
         traverseEndOfSequences(fromIdx, toIdx);
     }
 
+    /**
+     * Returns the matches between <code>from</code> and <code>to</code>, from
+     * the engine. Subclasses may override this to use another source, such as
+     * the primitive arrays behind the collections.
+     */
+    protected Alignment getAlignment() {
+        return engine.getAlignment(from, to, comparator);
+    }
+
+    /**
+     * Returns the matcher of the elements of <code>from</code> and
+     * <code>to</code>, for <code>execute(int)</code>, which compares them by
+     * <code>Elements.isEqual</code>. Subclasses may override this to compare
+     * the primitive arrays behind the collections, so that no element is
+     * boxed.
+     */
+    protected ElementMatcher getMatcher() {
+        final boolean comparable = Elements.isComparable(comparator, from);
+        return new ElementMatcher() {
+            public boolean matches(int fromIdx, int toIdx) {
+                return Elements.isEqual(comparator, comparable, from.get(fromIdx), to.get(toIdx));
+            }
+        };
+    }
+
     protected void traverseEndOfSequences(int fromIdx, int toIdx) {
         int lastFrom = from.size() - 1;
         int lastTo = to.size() - 1;
@@ -198,7 +377,7 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
      * Invoked for elements in <code>from</code> and not in <code>to</code>.
      */
     protected void onFromNotTo(int fromIdx, int toIdx) {
-        if (delStart == null) {
+        if (!pending) {
             setIndices(fromIdx, fromIdx, toIdx, Difference.NONE);
         }
         else {
@@ -211,7 +390,7 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
      * Invoked for elements in <code>to</code> and not in <code>from</code>.
      */
     protected void onToNotFrom(int fromIdx, int toIdx) {
-        if (delStart == null) {
+        if (!pending) {
             setIndices(fromIdx, Difference.NONE, toIdx, toIdx);
         }
         else {
@@ -221,6 +400,7 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
     }
 
     private void setIndices(int delSt, int delEn, int addSt, int addEn) {
+        pending = true;
         delStart = delSt;
         delEnd = delEn;
         addStart = addSt;
@@ -233,4 +413,92 @@ public abstract class Differ <ObjectType extends Object, DiffType extends Differ
     protected void onMatch(int fromIdx, int toIdx) {
         addPending();
     }
+
+    /**
+     * Goes through the gaps between the runs of matches of the alignment, a
+     * difference at a time.
+     */
+    protected class DifferenceIterator implements Iterator<DiffType> {
+        /**
+         * The matches, found when first needed.
+         */
+        private Alignment alignment = null;
+
+        /**
+         * The run that ends the next gap, which is the end of the sequences
+         * when it is the number of runs.
+         */
+        private int run = 0;
+
+        /**
+         * The start of the next gap in "from".
+         */
+        private int fromIdx = 0;
+
+        /**
+         * The start of the next gap in "to".
+         */
+        private int toIdx = 0;
+
+        /**
+         * The next difference, if already found.
+         */
+        private DiffType next = null;
+
+        public boolean hasNext() {
+            if (next == null) {
+                next = findNext();
+            }
+            return next != null;
+        }
+
+        public DiffType next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DiffType diff = next;
+            next = null;
+            return diff;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        /**
+         * Returns the difference of the next gap that is not empty, or null
+         * if there are none left.
+         */
+        protected DiffType findNext() {
+            if (alignment == null) {
+                alignment = getAlignment();
+                minimal = alignment.isMinimal();
+            }
+
+            while (run <= alignment.getRunCount()) {
+                int fromEnd = from.size();
+                int toEnd = to.size();
+                int length = 0;
+                if (run < alignment.getRunCount()) {
+                    fromEnd = alignment.getFromStart(run);
+                    toEnd = alignment.getToStart(run);
+                    length = alignment.getLength(run);
+                }
+                ++run;
+
+                int delStart = fromIdx;
+                int addStart = toIdx;
+                fromIdx = fromEnd + length;
+                toIdx = toEnd + length;
+
+                if (fromEnd > delStart || toEnd > addStart) {
+                    int delEnd = fromEnd > delStart ? fromEnd - 1 : Difference.NONE;
+                    int addEnd = toEnd > addStart ? toEnd - 1 : Difference.NONE;
+                    return createDifference(delStart, delEnd, addStart, addEnd);
+                }
+            }
+
+            return null;
+        }
+    }
 }
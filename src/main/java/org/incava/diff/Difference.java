@@ -93,16 +93,24 @@ public class Difference {
     public boolean equals(Object obj) {
         if (obj instanceof Difference) {
             Difference other = (Difference)obj;
-            return (delStart == other.delStart && 
-                    delEnd   == other.delEnd && 
-                    addStart == other.addStart && 
-                    addEnd   == other.addEnd);
+            return (isEqual(delStart, other.delStart) && 
+                    isEqual(delEnd,   other.delEnd) && 
+                    isEqual(addStart, other.addStart) && 
+                    isEqual(addEnd,   other.addEnd));
         }
         else {
             return false;
         }
     }
 
+    /**
+     * Compares the two points by value, since only small values of
+     * <code>Integer</code> are the same instances.
+     */
+    private static boolean isEqual(Integer x, Integer y) {
+        return x == null ? y == null : x.equals(y);
+    }
+
     public int hashCode() {
         int hash = 1;
         for (Integer i : new Integer[] { delStart, delEnd, addStart, addEnd }) {
@@ -0,0 +1,41 @@
+package org.incava.diff;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Converts elements to and from bytes, for the added elements of a patch
+ * written by <code>PatchEncoder</code> and read by
+ * <code>PatchDecoder</code>, and for the fingerprints of
+ * <code>DiffCache</code>, for which equal elements must have the same bytes.
+ */
+public interface ElementCodec<ObjectType> {
+    /**
+     * Strings, as UTF-8.
+     */
+    public static final ElementCodec<String> UTF_8 = new ElementCodec<String>() {
+        private final Charset charset = Charset.forName("UTF-8");
+
+        public byte[] encode(String element) {
+            return element.getBytes(charset);
+        }
+
+        public String decode(ByteBuffer buffer, int length) {
+            ByteBuffer bytes = buffer.slice();
+            bytes.limit(length);
+            buffer.position(buffer.position() + length);
+            return charset.decode(bytes).toString();
+        }
+    };
+
+    /**
+     * Returns the bytes of the element.
+     */
+    public byte[] encode(ObjectType element);
+
+    /**
+     * Returns the element of the next <code>length</code> bytes of the
+     * buffer, which are consumed.
+     */
+    public ObjectType decode(ByteBuffer buffer, int length);
+}
@@ -0,0 +1,14 @@
+package org.incava.diff;
+
+/**
+ * Compares the elements of the "from" and "to" sequences by their positions.
+ * The Myers engines use only this, so they can run on sequences that are not
+ * lists of objects, such as arrays of primitives, without boxing.
+ */
+public interface ElementMatcher {
+    /**
+     * Returns whether the element at <code>fromIdx</code> in "from" is equal to
+     * the element at <code>toIdx</code> in "to".
+     */
+    public boolean matches(int fromIdx, int toIdx);
+}
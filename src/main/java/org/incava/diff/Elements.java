@@ -0,0 +1,43 @@
+package org.incava.diff;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The comparison of elements shared by the engines, <code>LCS</code>,
+ * <code>DiffBatch</code> and <code>Diff3</code>, so that all of them find the
+ * same elements equal.
+ */
+public class Elements {
+    /**
+     * Returns whether, without a comparator, the elements of a diff are
+     * compared by <code>compareTo</code>, which is so if the first element of
+     * "from" is <code>Comparable</code>. This is decided once for the diff,
+     * as by <code>LCS.createMap</code>, so that elements of other types in
+     * the same collections are compared by <code>equals</code>.
+     */
+    public static boolean isComparable(Comparator<?> comp, List<?> from) {
+        return comp == null && from.size() > 0 && from.get(0) instanceof Comparable;
+    }
+
+    /**
+     * Compares the two elements, using the comparator if provided, otherwise
+     * <code>compareTo</code> if <code>comparable</code>, as returned by
+     * <code>isComparable</code> for the diff, and otherwise
+     * <code>equals</code>. This is consistent with the maps created by
+     * <code>LCS.createMap</code>, so that, for example, a
+     * <code>BigDecimal</code> of 1.0 is equal to one of 1.00 everywhere.
+     */
+    @SuppressWarnings("unchecked")
+    public static <ObjectType> boolean isEqual(Comparator<ObjectType> comp, boolean comparable, ObjectType x, ObjectType y) {
+        if (comp != null) {
+            return comp.compare(x, y) == 0;
+        }
+        else if (comparable) {
+            return ((Comparable<Object>)x).compareTo(y) == 0;
+        }
+        else {
+            return x.equals(y);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.incava.diff;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Compares two sequences that are read once, in order, such as the lines of
+ * files larger than the heap, holding no more than a window of each in
+ * memory. The windows are diffed by the engine, and the differences are
+ * emitted up to a cut at a match, which serves as an anchor from which both
+ * windows are refilled, so that the memory does not depend on the size of the
+ * sequences, but only on that of the window.
+ *
+ * <p>The cut is at the last match in the first halves of both windows, where
+ * the matches are little affected by what follows the windows. If there is
+ * none, it is at the first match, and if the windows have no match at all,
+ * their first halves are emitted as a change. The differences are valid, and
+ * are the same as those of <code>Diff</code> with the engine where the inputs
+ * differ by less than half of a window at a time, but a change or a move
+ * larger than that is not found as compactly as a full diff would find it.</p>
+ */
+public class ExternalDiff<ObjectType> {
+    /**
+     * The default number of elements of each sequence in memory.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 16;
+
+    private final Iterator<ObjectType> from;
+
+    private final Iterator<ObjectType> to;
+
+    private final Comparator<ObjectType> comparator;
+
+    private final DiffEngine engine;
+
+    /**
+     * The maximum number of elements of each sequence in memory.
+     */
+    private final int windowSize;
+
+    /**
+     * The current windows of the sequences.
+     */
+    private final List<ObjectType> fromWindow;
+
+    private final List<ObjectType> toWindow;
+
+    /**
+     * The positions in the sequences of the starts of the windows.
+     */
+    private int fromBase;
+
+    private int toBase;
+
+    /**
+     * The difference not yet emitted, from its starts to its ends, exclusive,
+     * which may be extended by the next window.
+     */
+    private boolean pending;
+
+    private int delStart;
+
+    private int delEnd;
+
+    private int addStart;
+
+    private int addEnd;
+
+    /**
+     * Creates the diff of the two sequences, with the default engine and
+     * window.
+     */
+    public ExternalDiff(Iterator<ObjectType> from, Iterator<ObjectType> to) {
+        this(from, to, null, new LinearSpaceEngine(), DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates the diff of the two sequences, with the given comparator and
+     * engine, holding up to <code>windowSize</code> elements of each in
+     * memory. The engine should use memory in proportion to the window, as
+     * <code>LinearSpaceEngine</code> does.
+     */
+    public ExternalDiff(Iterator<ObjectType> from, Iterator<ObjectType> to, Comparator<ObjectType> comp, DiffEngine engine, int windowSize) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("window size: " + windowSize);
+        }
+        this.from = from;
+        this.to = to;
+        this.comparator = comp;
+        this.engine = engine;
+        this.windowSize = windowSize;
+        this.fromWindow = new ArrayList<ObjectType>();
+        this.toWindow = new ArrayList<ObjectType>();
+    }
+
+    /**
+     * Returns the lines of the reader, read as they are iterated. An
+     * <code>IOException</code> is thrown as a <code>RuntimeException</code>.
+     */
+    public static Iterator<String> lines(final BufferedReader reader) {
+        return new Iterator<String>() {
+            private String next = readLine();
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public String next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                String line = next;
+                next = readLine();
+                return line;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            private String readLine() {
+                try {
+                    return reader.readLine();
+                }
+                catch (IOException ioe) {
+                    throw new RuntimeException(ioe);
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads the sequences, and returns the differences. Only the list of
+     * differences grows with the sequences; <code>execute(DiffVisitor)</code>
+     * does not keep them.
+     */
+    public List<Difference> execute() {
+        final List<Difference> differences = new ArrayList<Difference>();
+        execute(new DiffVisitor() {
+            public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+                differences.add(new Difference(delStart, delEnd, addStart, addEnd));
+            }
+        });
+        return differences;
+    }
+
+    /**
+     * Reads the sequences, passing each difference to the visitor as it is
+     * found.
+     */
+    public void execute(DiffVisitor visitor) {
+        while (true) {
+            fill(fromWindow, from);
+            fill(toWindow, to);
+            boolean last = !from.hasNext() && !to.hasNext();
+            if (fromWindow.isEmpty() && toWindow.isEmpty()) {
+                break;
+            }
+
+            Alignment alignment = engine.getAlignment(fromWindow, toWindow, comparator);
+            int fromCut;
+            int toCut;
+
+            if (last) {
+                fromCut = fromWindow.size();
+                toCut = toWindow.size();
+            }
+            else {
+                int run = getCutRun(alignment);
+                if (run == -1) {
+                    fromCut = fromWindow.size() / 2;
+                    toCut = toWindow.size() / 2;
+                }
+                else {
+                    int fromStart = alignment.getFromStart(run);
+                    int toStart = alignment.getToStart(run);
+                    int length = Math.min(alignment.getLength(run), Math.min(fromWindow.size() / 2 - fromStart, toWindow.size() / 2 - toStart));
+                    fromCut = fromStart + Math.max(1, length);
+                    toCut = toStart + Math.max(1, length);
+                }
+            }
+
+            emit(visitor, alignment, fromCut, toCut);
+
+            fromWindow.subList(0, fromCut).clear();
+            toWindow.subList(0, toCut).clear();
+            fromBase += fromCut;
+            toBase += toCut;
+
+            if (last) {
+                break;
+            }
+        }
+        flush(visitor);
+    }
+
+    /**
+     * Returns the run with the last match in the first halves of both
+     * windows, or, if there is none, the first run, or -1 if there are no
+     * matches.
+     */
+    protected int getCutRun(Alignment alignment) {
+        int fromHalf = fromWindow.size() / 2;
+        int toHalf = toWindow.size() / 2;
+        for (int run = alignment.getRunCount() - 1; run >= 0; --run) {
+            if (alignment.getFromStart(run) < fromHalf && alignment.getToStart(run) < toHalf) {
+                return run;
+            }
+        }
+        return alignment.getRunCount() == 0 ? -1 : 0;
+    }
+
+    /**
+     * Emits the differences of the windows before the cuts, which are at the
+     * end of a match, or at the ends of the windows, or, without a match, at
+     * any point.
+     */
+    private void emit(DiffVisitor visitor, Alignment alignment, int fromCut, int toCut) {
+        int fromIdx = 0;
+        int toIdx = 0;
+        for (int run = 0; run < alignment.getRunCount() && alignment.getFromStart(run) < fromCut; ++run) {
+            int fromStart = alignment.getFromStart(run);
+            int toStart = alignment.getToStart(run);
+            addGap(fromIdx, fromStart, toIdx, toStart);
+            flush(visitor);
+
+            int length = Math.min(alignment.getLength(run), fromCut - fromStart);
+            fromIdx = fromStart + length;
+            toIdx = toStart + length;
+        }
+        addGap(fromIdx, fromCut, toIdx, toCut);
+    }
+
+    /**
+     * Adds the elements from the starts to the ends, exclusive, within the
+     * windows, to the pending difference.
+     */
+    private void addGap(int fromStart, int fromEnd, int toStart, int toEnd) {
+        if (fromStart == fromEnd && toStart == toEnd) {
+            return;
+        }
+        if (!pending) {
+            pending = true;
+            delStart = fromBase + fromStart;
+            addStart = toBase + toStart;
+        }
+        delEnd = fromBase + fromEnd;
+        addEnd = toBase + toEnd;
+    }
+
+    /**
+     * Emits the pending difference, if any.
+     */
+    private void flush(DiffVisitor visitor) {
+        if (pending) {
+            visitor.onDifference(delStart, delEnd > delStart ? delEnd - 1 : Difference.NONE, addStart, addEnd > addStart ? addEnd - 1 : Difference.NONE);
+            pending = false;
+        }
+    }
+
+    private void fill(List<ObjectType> window, Iterator<ObjectType> it) {
+        while (window.size() < windowSize && it.hasNext()) {
+            window.add(it.next());
+        }
+    }
+}
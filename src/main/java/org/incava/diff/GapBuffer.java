@@ -0,0 +1,133 @@
+package org.incava.diff;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list kept as an array with a gap at the point of the last edit, as in an
+ * editor, so that edits close to each other, such as those of a patch applied
+ * from start to end, move only the elements between them. Applying a patch
+ * thus costs in proportion to the size of the list and of the edits, instead
+ * of to their product, as removing and inserting in an
+ * <code>ArrayList</code> does.
+ */
+public class GapBuffer<ObjectType> extends AbstractList<ObjectType> implements RandomAccess {
+    private Object[] elements;
+
+    /**
+     * The start of the gap, which is also the position of the next edit.
+     */
+    private int gapStart;
+
+    /**
+     * The end of the gap, exclusive.
+     */
+    private int gapEnd;
+
+    /**
+     * Creates the empty buffer.
+     */
+    public GapBuffer() {
+        this.elements = new Object[16];
+        this.gapStart = 0;
+        this.gapEnd = elements.length;
+    }
+
+    /**
+     * Creates the buffer with the elements, and the gap at the end.
+     */
+    public GapBuffer(List<? extends ObjectType> list) {
+        this.elements = Arrays.copyOf(list.toArray(), list.size() + 16);
+        this.gapStart = list.size();
+        this.gapEnd = elements.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ObjectType get(int index) {
+        checkIndex(index, size() - 1);
+        return (ObjectType)elements[index < gapStart ? index : index + gapEnd - gapStart];
+    }
+
+    public int size() {
+        return elements.length - (gapEnd - gapStart);
+    }
+
+    public ObjectType set(int index, ObjectType element) {
+        ObjectType previous = get(index);
+        elements[index < gapStart ? index : index + gapEnd - gapStart] = element;
+        return previous;
+    }
+
+    public void add(int index, ObjectType element) {
+        replace(index, 0, Collections.singletonList(element));
+    }
+
+    public ObjectType remove(int index) {
+        ObjectType previous = get(index);
+        replace(index, 1, Collections.<ObjectType>emptyList());
+        return previous;
+    }
+
+    /**
+     * Replaces <code>count</code> elements, starting at <code>start</code>,
+     * with the given elements, after moving the gap to <code>start</code>.
+     */
+    public void replace(int start, int count, List<? extends ObjectType> items) {
+        checkIndex(start, size());
+        if (count < 0 || start + count > size()) {
+            throw new IndexOutOfBoundsException("start: " + start + "; count: " + count + "; size: " + size());
+        }
+
+        moveGap(start);
+
+        // the deleted elements join the gap:
+        Arrays.fill(elements, gapEnd, gapEnd + count, null);
+        gapEnd += count;
+
+        int length = items.size();
+        if (gapEnd - gapStart < length) {
+            int tail = elements.length - gapEnd;
+            Object[] larger = new Object[Math.max(elements.length * 2, size() + length + 16)];
+            System.arraycopy(elements, 0, larger, 0, gapStart);
+            System.arraycopy(elements, gapEnd, larger, larger.length - tail, tail);
+            elements = larger;
+            gapEnd = larger.length - tail;
+        }
+
+        if (length > 0) {
+            Object[] added = items.toArray();
+            System.arraycopy(added, 0, elements, gapStart, length);
+            gapStart += length;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Moves the gap to the position, moving the elements between.
+     */
+    private void moveGap(int position) {
+        if (position < gapStart) {
+            int count = gapStart - position;
+            System.arraycopy(elements, position, elements, gapEnd - count, count);
+            Arrays.fill(elements, position, Math.min(gapStart, gapEnd - count), null);
+            gapStart = position;
+            gapEnd -= count;
+        }
+        else if (position > gapStart) {
+            int count = position - gapStart;
+            System.arraycopy(elements, gapEnd, elements, gapStart, count);
+            Arrays.fill(elements, Math.max(gapEnd, gapStart + count), gapEnd + count, null);
+            gapStart = position;
+            gapEnd += count;
+        }
+    }
+
+    private void checkIndex(int index, int max) {
+        if (index < 0 || index > max) {
+            throw new IndexOutOfBoundsException("index: " + index + "; size: " + size());
+        }
+    }
+}
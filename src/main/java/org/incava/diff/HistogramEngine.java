@@ -0,0 +1,200 @@
+package org.incava.diff;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An engine using the histogram diff, as in JGit. It counts the occurrences
+ * of each element in the "from" range, then anchors on the longest run of
+ * common elements that has the fewest occurrences, and repeats on each side
+ * of it. Elements that occur more than <code>maxChainLength</code> times, such
+ * as blank lines and braces, are never anchored on; if a range has nothing
+ * else in common, it falls back to the Myers algorithm, of the engine it
+ * wraps.
+ *
+ * <p>The result is not always the longest common subsequence, but it avoids
+ * matching up the repeated elements, which is both faster for repetitive
+ * inputs and often closer to the actual change.</p>
+ */
+public class HistogramEngine extends AbstractDiffEngine {
+    /**
+     * The default maximum number of occurrences of an anchor element.
+     */
+    public static final int DEFAULT_MAX_CHAIN_LENGTH = 64;
+
+    /**
+     * The maximum number of occurrences of an element in the "from" range for
+     * it to be used as an anchor.
+     */
+    private final int maxChainLength;
+
+    /**
+     * The engine for the ranges that have no anchor.
+     */
+    private final MyersEngine fallback;
+
+    /**
+     * Creates the engine with the default maximum chain length.
+     */
+    public HistogramEngine() {
+        this(DEFAULT_MAX_CHAIN_LENGTH);
+    }
+
+    /**
+     * Creates the engine with the given maximum chain length.
+     */
+    public HistogramEngine(int maxChainLength) {
+        this(maxChainLength, new MyersEngine());
+    }
+
+    /**
+     * Creates the engine with the given maximum chain length, and the engine
+     * for the ranges that have no anchor.
+     */
+    public HistogramEngine(int maxChainLength, MyersEngine fallback) {
+        this.maxChainLength = maxChainLength;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns the maximum number of occurrences of an anchor element.
+     */
+    public int getMaxChainLength() {
+        return maxChainLength;
+    }
+
+    /**
+     * Returns the engine for the ranges that have no anchor.
+     */
+    public MyersEngine getFallback() {
+        return fallback;
+    }
+
+    public String getKey() {
+        return getClass().getName() + "(" + maxChainLength + ", " + fallback.getKey() + ")";
+    }
+
+    public <ObjectType> boolean addMatches(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd) {
+        LCS<ObjectType> lcs = new LCS<ObjectType>(from, to, comp);
+        boolean comparable = Elements.isComparable(comp, from);
+        boolean minimal = true;
+
+        // the ranges yet to be done, which are exclusive of the end points.
+        // This is not recursive, since each anchor can be a single element.
+        Deque<int[]> regions = new ArrayDeque<int[]>();
+        regions.push(new int[] { fromStart, fromEnd + 1, toStart, toEnd + 1 });
+
+        while (!regions.isEmpty()) {
+            int[] region = regions.pop();
+            int fs = region[0];
+            int fe = region[1];
+            int ts = region[2];
+            int te = region[3];
+
+            while (fs < fe && ts < te && Elements.isEqual(comp, comparable, from.get(fs), to.get(ts))) {
+                matches[fs++] = ts++;
+            }
+
+            while (fs < fe && ts < te && Elements.isEqual(comp, comparable, from.get(fe - 1), to.get(te - 1))) {
+                matches[--fe] = --te;
+            }
+
+            if (fs == fe || ts == te) {
+                continue;
+            }
+
+            int[] anchor = findAnchor(lcs, from, to, comp, fs, fe, ts, te);
+            if (anchor == null) {
+                minimal &= fallback.addMatches(from, to, comp, matches, fs, fe - 1, ts, te - 1);
+                continue;
+            }
+
+            // the anchor is not necessarily in the longest common subsequence:
+            minimal = false;
+
+            int len = anchor[1] - anchor[0];
+            for (int idx = 0; idx < len; ++idx) {
+                matches[anchor[0] + idx] = anchor[2] + idx;
+            }
+
+            regions.push(new int[] { anchor[1], fe, anchor[3], te });
+            regions.push(new int[] { fs, anchor[0], ts, anchor[2] });
+        }
+
+        return minimal;
+    }
+
+    /**
+     * Returns the longest common run, as { fromStart, fromEnd, toStart, toEnd
+     * }, with the end points exclusive, among those with the fewest
+     * occurrences in <code>from</code>. Returns null if no element in common
+     * occurs few enough times.
+     */
+    protected <ObjectType> int[] findAnchor(LCS<ObjectType> lcs, List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int fs, int fe, int ts, int te) {
+        Map<ObjectType, List<Integer>> histogram = lcs.createMatchesMap();
+        boolean comparable = Elements.isComparable(comp, from);
+        for (int idx = fs; idx < fe; ++idx) {
+            ObjectType key = from.get(idx);
+            List<Integer> positions = histogram.get(key);
+            if (positions == null) {
+                positions = new ArrayList<Integer>();
+                histogram.put(key, positions);
+            }
+            positions.add(idx);
+        }
+
+        // only elements occurring at most maxChainLength times are anchors:
+        int[] best = null;
+        int bestCount = maxChainLength;
+
+        int toIdx = ts;
+        while (toIdx < te) {
+            List<Integer> positions = histogram.get(to.get(toIdx));
+            int next = toIdx + 1;
+
+            if (positions != null && positions.size() <= bestCount) {
+                int fromIdx = -1;
+                for (Integer pos : positions) {
+                    // skip the positions within the run just found:
+                    if (pos < fromIdx) {
+                        continue;
+                    }
+
+                    int as = pos;
+                    int bs = toIdx;
+                    int ae = as + 1;
+                    int be = bs + 1;
+                    int count = positions.size();
+
+                    while (as > fs && bs > ts && Elements.isEqual(comp, comparable, from.get(as - 1), to.get(bs - 1))) {
+                        --as;
+                        --bs;
+                        count = Math.min(count, histogram.get(from.get(as)).size());
+                    }
+
+                    while (ae < fe && be < te && Elements.isEqual(comp, comparable, from.get(ae), to.get(be))) {
+                        count = Math.min(count, histogram.get(from.get(ae)).size());
+                        ++ae;
+                        ++be;
+                    }
+
+                    next = Math.max(next, be);
+                    fromIdx = ae;
+
+                    if (best == null || count < bestCount || (count == bestCount && ae - as > best[1] - best[0])) {
+                        best = new int[] { as, ae, bs, be };
+                        bestCount = count;
+                    }
+                }
+            }
+
+            toIdx = next;
+        }
+
+        return best;
+    }
+}
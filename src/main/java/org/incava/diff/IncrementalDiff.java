@@ -0,0 +1,256 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the matches between two collections as they are edited, such as in
+ * an editor, so that each edit does not diff them in full again. An edit
+ * replaces a range of either collection; the matches in that range are
+ * dropped, those after it are shifted, and only the gap between the matches
+ * before and after the edit is diffed again, with the engine.
+ *
+ * <p>Finding the matches thus costs in proportion to the gap, not to the
+ * collections. The matches in the range of an edit of "to" are found by a
+ * binary search, and an edit of "from" that keeps its size updates the
+ * matches in place. Otherwise, the matches after the edit are moved or
+ * shifted in bulk, which is in proportion to their number. The result is
+ * valid, but as the rest of the matches are kept, it is not necessarily
+ * minimal, as a full diff would be.</p>
+ *
+ * <p>The engine must be an <code>AbstractDiffEngine</code>, such as
+ * <code>MyersEngine</code> or <code>HistogramEngine</code>, as those can add
+ * the matches of a gap to the existing ones. So <code>LCSEngine</code>, the
+ * default of <code>Diff</code>, cannot be used.</p>
+ */
+public class IncrementalDiff<ObjectType> {
+    /**
+     * The source collection, AKA the "from" values.
+     */
+    private final List<ObjectType> from;
+
+    /**
+     * The target collection, AKA the "to" values.
+     */
+    private final List<ObjectType> to;
+
+    /**
+     * The comparator used, if any.
+     */
+    private final Comparator<ObjectType> comparator;
+
+    /**
+     * The engine for the gaps.
+     */
+    private final AbstractDiffEngine engine;
+
+    /**
+     * The matching position in "to" for each position in "from", or -1. The
+     * array can be larger than "from", so that it is not reallocated for each
+     * edit.
+     */
+    private int[] matches;
+
+    /**
+     * Whether the matches are minimal.
+     */
+    private boolean minimal;
+
+    /**
+     * Creates the differ for the two collections, which are copied, using
+     * <code>MyersEngine</code>, whose cost grows with the size of each edit.
+     */
+    public IncrementalDiff(List<ObjectType> from, List<ObjectType> to) {
+        this(from, to, null, new MyersEngine());
+    }
+
+    /**
+     * Creates the differ for the two collections, which are copied, using the
+     * given comparator and engine.
+     */
+    public IncrementalDiff(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, AbstractDiffEngine engine) {
+        this.from = new ArrayList<ObjectType>(from);
+        this.to = new ArrayList<ObjectType>(to);
+        this.comparator = comp;
+        this.engine = engine;
+        this.matches = new int[this.from.size() + 16];
+        Arrays.fill(this.matches, -1);
+        this.minimal = true;
+        rematch(-1, this.from.size());
+    }
+
+    /**
+     * Returns the current "from" collection.
+     */
+    public List<ObjectType> getFrom() {
+        return Collections.unmodifiableList(from);
+    }
+
+    /**
+     * Returns the current "to" collection.
+     */
+    public List<ObjectType> getTo() {
+        return Collections.unmodifiableList(to);
+    }
+
+    /**
+     * Replaces <code>count</code> elements of "from", starting at
+     * <code>start</code>, with the given elements. An insertion has a count
+     * of zero, and a deletion has no elements.
+     */
+    public void replaceFrom(int start, int count, List<ObjectType> elements) {
+        checkRange(from, start, count);
+        int size = elements.size();
+        int oldSize = from.size();
+        replace(from, start, count, elements);
+
+        if (size != count) {
+            int tail = oldSize - start - count;
+            if (from.size() > matches.length) {
+                int[] larger = new int[Math.max(2 * matches.length, from.size() + 16)];
+                System.arraycopy(matches, 0, larger, 0, start);
+                System.arraycopy(matches, start + count, larger, start + size, tail);
+                matches = larger;
+            }
+            else {
+                System.arraycopy(matches, start + count, matches, start + size, tail);
+            }
+        }
+        Arrays.fill(matches, start, start + size, -1);
+
+        // the last match before the edit, and the first after it:
+        int before = start - 1;
+        while (before >= 0 && matches[before] == -1) {
+            --before;
+        }
+        int after = start + size;
+        while (after < from.size() && matches[after] == -1) {
+            ++after;
+        }
+
+        rematch(before, after);
+    }
+
+    /**
+     * Replaces <code>count</code> elements of "to", starting at
+     * <code>start</code>, with the given elements. An insertion has a count
+     * of zero, and a deletion has no elements.
+     */
+    public void replaceTo(int start, int count, List<ObjectType> elements) {
+        checkRange(to, start, count);
+        replace(to, start, count, elements);
+
+        int end = start + count;
+        int delta = elements.size() - count;
+
+        // the matches in the range are dropped:
+        int after = findMatch(start);
+        while (after < from.size() && (matches[after] == -1 || matches[after] < end)) {
+            matches[after++] = -1;
+        }
+
+        int before = after - 1;
+        while (before >= 0 && matches[before] == -1) {
+            --before;
+        }
+
+        if (delta != 0) {
+            for (int idx = after; idx < from.size(); ++idx) {
+                if (matches[idx] != -1) {
+                    matches[idx] += delta;
+                }
+            }
+        }
+
+        rematch(before, after);
+    }
+
+    /**
+     * Returns the current matches.
+     */
+    public Alignment getAlignment() {
+        return new Alignment(Arrays.copyOf(matches, from.size()), minimal);
+    }
+
+    /**
+     * Returns the differences between the current collections.
+     */
+    public List<Difference> execute() {
+        final Alignment alignment = getAlignment();
+        Diff<ObjectType> diff = new Diff<ObjectType>(from, to, comparator) {
+            protected Alignment getAlignment() {
+                return alignment;
+            }
+        };
+        return diff.execute();
+    }
+
+    /**
+     * Returns whether the matches are minimal, which is so only if no edit
+     * has been made, or if the last edit led to a diff of everything.
+     */
+    public boolean isMinimal() {
+        return minimal;
+    }
+
+    /**
+     * Diffs the gap between the matches at the "from" positions
+     * <code>before</code> and <code>after</code>, which are -1 and the size of
+     * "from" at the ends.
+     */
+    protected void rematch(int before, int after) {
+        int fromStart = before + 1;
+        int fromEnd = after - 1;
+        int toStart = before == -1 ? 0 : matches[before] + 1;
+        int toEnd = after == from.size() ? to.size() - 1 : matches[after] - 1;
+
+        boolean gapMinimal = true;
+        if (fromStart <= fromEnd && toStart <= toEnd) {
+            gapMinimal = engine.addMatches(from, to, comparator, matches, fromStart, fromEnd, toStart, toEnd);
+        }
+        minimal = gapMinimal && before == -1 && after == from.size();
+    }
+
+    /**
+     * Returns the first position in "from" whose match is at or after the
+     * position in "to", or the size of "from" if there is none. Matches
+     * increase with their positions, so this is a binary search, which skips
+     * the positions without a match on the way.
+     */
+    protected int findMatch(int toIdx) {
+        int low = 0;
+        int high = from.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int idx = mid;
+            while (idx < high && matches[idx] == -1) {
+                ++idx;
+            }
+
+            if (idx == high) {
+                high = mid;
+            }
+            else if (matches[idx] < toIdx) {
+                low = idx + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void checkRange(List<ObjectType> list, int start, int count) {
+        if (start < 0 || count < 0 || start + count > list.size()) {
+            throw new IndexOutOfBoundsException("start: " + start + "; count: " + count + "; size: " + list.size());
+        }
+    }
+
+    private void replace(List<ObjectType> list, int start, int count, List<ObjectType> elements) {
+        list.subList(start, start + count).clear();
+        list.addAll(start, elements);
+    }
+}
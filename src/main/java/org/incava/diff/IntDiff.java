@@ -0,0 +1,74 @@
+package org.incava.diff;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compares two ranges of arrays of <code>int</code>, such as lists of IDs or
+ * hashes, with the differences in the same form as <code>Diff</code>. The
+ * positions of the differences are relative to the starts of the ranges. The
+ * values are compared directly in the arrays, by a Myers engine, so none are
+ * boxed.
+ */
+public class IntDiff extends PrimitiveDiff<Integer> {
+    /**
+     * A view of a range of the array as a list.
+     */
+    protected static class IntList extends RangeList<Integer> {
+        private final int[] values;
+
+        public IntList(int[] values, int offset, int length) {
+            super(values.length, offset, length);
+            this.values = values;
+        }
+
+        protected Integer getValue(int index) {
+            return values[index];
+        }
+
+        public ByteBuffer getBytes() {
+            ByteBuffer bytes = ByteBuffer.allocate(4 * size());
+            bytes.asIntBuffer().put(values, getOffset(), size());
+            return bytes;
+        }
+    }
+
+    /**
+     * The source values, AKA the "from" values.
+     */
+    private final int[] from;
+
+    /**
+     * The target values, AKA the "to" values.
+     */
+    private final int[] to;
+
+    /**
+     * Constructs the IntDiff object for the two arrays.
+     */
+    public IntDiff(int[] from, int[] to) {
+        this(from, 0, from.length, to, 0, to.length);
+    }
+
+    /**
+     * Constructs the IntDiff object for the two ranges of arrays, using a
+     * <code>LinearSpaceEngine</code>, so that the memory used is proportional
+     * to the lengths of the ranges.
+     */
+    public IntDiff(int[] from, int fromOffset, int fromLength, int[] to, int toOffset, int toLength) {
+        this(from, fromOffset, fromLength, to, toOffset, toLength, new LinearSpaceEngine());
+    }
+
+    /**
+     * Constructs the IntDiff object for the two ranges of arrays, using the
+     * given engine, which compares the values by their positions.
+     */
+    public IntDiff(int[] from, int fromOffset, int fromLength, int[] to, int toOffset, int toLength, MatcherEngine engine) {
+        super(new IntList(from, fromOffset, fromLength), new IntList(to, toOffset, toLength), engine);
+        this.from = from;
+        this.to = to;
+    }
+
+    protected boolean isEqual(int fromIdx, int toIdx) {
+        return from[fromIdx] == to[toIdx];
+    }
+}
@@ -6,9 +6,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 public class LCS<ObjectType> {
     /**
@@ -26,6 +26,16 @@ public class LCS<ObjectType> {
      */
     private final Comparator<ObjectType> comparator;
 
+    /**
+     * The executor for numbering the elements in parallel, or null.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The workspace whose buffers are reused, or null.
+     */
+    private final DiffWorkspace workspace;
+
     /**
      * Constructs an LCS for the two arrays, using the given comparator.
      */
@@ -55,84 +65,180 @@ public class LCS<ObjectType> {
      * Constructs an LCS for the two collections, using the given comparator.
      */
     public LCS(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp) {
+        this(from, to, comp, null);
+    }
+
+    /**
+     * Constructs an LCS for the two collections, using the given comparator,
+     * and numbering the elements of large collections in parallel with the
+     * executor, if it is not null.
+     */
+    public LCS(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, ExecutorService executor) {
+        this(from, to, comp, executor, null);
+    }
+
+    /**
+     * Constructs an LCS for the two collections, using the given comparator
+     * and executor, and the buffers of the workspace, if it is not null.
+     */
+    public LCS(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, ExecutorService executor, DiffWorkspace workspace) {
         this.from = from;
         this.to = to;
         this.comparator = comp;
+        this.executor = executor;
+        this.workspace = workspace;
     }
 
     /**
      * Returns an array of the longest common subsequences.
      */
     public List<Integer> getMatches() {
+        return toList(getMatchArray());
+    }
+
+    /**
+     * Returns the matches as an array, indexed by the position in "from", with
+     * each value being the matching position in "to", or -1 if there is no
+     * match.
+     */
+    public int[] getMatchArray() {
+        int[] matches = new int[from.size()];
+        addAllMatches(matches);
+        return matches;
+    }
+
+    /**
+     * Returns the matches as an alignment, using the buffers of the
+     * workspace, if any.
+     */
+    public Alignment getAlignment() {
+        int[] matches = workspace == null ? new int[from.size()] : workspace.getBuffer(DiffWorkspace.MATCHES, from.size());
+        addAllMatches(matches);
+        return new Alignment(matches, from.size(), true);
+    }
+
+    /**
+     * Sets the matches in the first <code>from.size()</code> elements of the
+     * array.
+     */
+    protected void addAllMatches(int[] matches) {
         int fromStart = 0;
         int fromEnd = from.size() - 1;
 
         int toStart = 0;
         int toEnd = to.size() - 1;
 
-        TreeMap<Integer, Integer> matches = new TreeMap<Integer, Integer>();
+        Arrays.fill(matches, 0, from.size(), -1);
+
+        boolean comparable = Elements.isComparable(comparator, from);
 
         // common beginning and ending elements:
-        while (fromStart <= fromEnd && toStart <= toEnd && equals(comparator, from.get(fromStart), to.get(toStart))) {
-            matches.put(fromStart++, toStart++);
+        while (fromStart <= fromEnd && toStart <= toEnd && Elements.isEqual(comparator, comparable, from.get(fromStart), to.get(toStart))) {
+            matches[fromStart++] = toStart++;
         }
 
-        while (fromStart <= fromEnd && toStart <= toEnd && equals(comparator, from.get(fromEnd), to.get(toEnd))) {
-            matches.put(fromEnd--, toEnd--);
+        while (fromStart <= fromEnd && toStart <= toEnd && Elements.isEqual(comparator, comparable, from.get(fromEnd), to.get(toEnd))) {
+            matches[fromEnd--] = toEnd--;
         }
 
         addMatches(matches, fromStart, fromEnd, toStart, toEnd);
-        
-        return toList(matches);
     }
 
     public void addMatches(TreeMap<Integer, Integer> matches, int fromStart, int fromEnd, int toStart, int toEnd) {
-        Map<ObjectType, List<Integer>> toMatches = getToMatches(toStart, toEnd);
+        int[] rangeMatches = new int[from.size()];
+        Arrays.fill(rangeMatches, fromStart, fromEnd + 1, -1);
+        addMatches(rangeMatches, fromStart, fromEnd, toStart, toEnd);
+        for (int idx = fromStart; idx <= fromEnd; ++idx) {
+            if (rangeMatches[idx] != -1) {
+                matches.put(idx, rangeMatches[idx]);
+            }
+        }
+    }
 
-        LCSTable links = new LCSTable();
-        Thresholds thresh = new Thresholds();
+    /**
+     * Sets in <code>matches</code>, indexed by the position in "from", the
+     * matches for the given ranges, which are inclusive.
+     */
+    public void addMatches(int[] matches, int fromStart, int fromEnd, int toStart, int toEnd) {
+        // the elements are numbered once, and then compared as symbols. The
+        // "to" elements are numbered first, so the "from" elements not among
+        // them are skipped:
+        DiffWorkspace ws = workspace == null ? new DiffWorkspace() : workspace;
+        int fromLength = fromEnd - fromStart + 1;
+        int toLength = toEnd - toStart + 1;
 
-        for (int idx = fromStart; idx <= fromEnd; ++idx) {
-            ObjectType fromElement = from.get(idx); // keygen here.
-            List<Integer> positions = toMatches.get(fromElement);
+        SymbolTable<ObjectType> symbols = new SymbolTable<ObjectType>(this, executor, SymbolTable.DEFAULT_CHUNK_SIZE);
+        int[] toSymbols = ws.getBuffer(DiffWorkspace.TO_SYMBOLS, toLength);
+        symbols.intern(to, toStart, toEnd + 1, toSymbols);
+        int[] fromSymbols = ws.getBuffer(DiffWorkspace.FROM_SYMBOLS, fromLength);
+        symbols.lookup(from, fromStart, fromEnd + 1, fromSymbols);
+        int symbolCount = symbols.size();
 
-            if (positions == null) {
+        // the positions in "to" of each symbol are positions[starts[sym]]
+        // through positions[starts[sym + 1] - 1], in increasing order:
+        int[] starts = ws.getBuffer(DiffWorkspace.STARTS, symbolCount + 1);
+        Arrays.fill(starts, 0, symbolCount + 1, 0);
+        for (int idx = 0; idx < toLength; ++idx) {
+            ++starts[toSymbols[idx] + 1];
+        }
+        for (int sym = 0; sym < symbolCount; ++sym) {
+            starts[sym + 1] += starts[sym];
+        }
+        int[] next = ws.getBuffer(DiffWorkspace.NEXT, symbolCount);
+        System.arraycopy(starts, 0, next, 0, symbolCount);
+        int[] positions = ws.getBuffer(DiffWorkspace.POSITIONS, toLength);
+        for (int idx = 0; idx < toLength; ++idx) {
+            positions[next[toSymbols[idx]]++] = toStart + idx;
+        }
+
+        LCSTable links = ws.getLinks();
+        Thresholds thresh = ws.getThresholds();
+
+        for (int idx = fromStart; idx <= fromEnd; ++idx) {
+            int sym = fromSymbols[idx - fromStart];
+            if (sym == -1) {
                 continue;
             }
-            
-            Integer k = 0;
-            ListIterator<Integer> pit = positions.listIterator(positions.size());
-            while (pit.hasPrevious()) {
-                Integer j = pit.previous();
+
+            int k = -1;
+            for (int pi = starts[sym + 1] - 1; pi >= starts[sym]; --pi) {
+                int j = positions[pi];
                 k = thresh.insert(j, k);
-                if (k != null) {
+                if (k != -1) {
                     links.update(idx, j, k);
-                }   
+                }
             }
         }
 
         if (!thresh.isEmpty()) {
-            Integer ti = thresh.lastKey();
-            Map<Integer, Integer> chain = links.getChain(ti);
-            matches.putAll(chain);
+            links.addChain(thresh.size() - 1, matches);
         }
     }
 
     public Map<ObjectType, List<Integer>> createMatchesMap() {
+        return createMap();
+    }
+
+    /**
+     * Returns a map keyed by the elements, using the comparator if provided,
+     * otherwise <code>compareTo</code> or <code>hashCode</code>, as for the
+     * map of positions.
+     */
+    public <ValueType> Map<ObjectType, ValueType> createMap() {
         if (comparator == null) {
-            if (from.size() > 0 && from.get(0) instanceof Comparable) {
+            if (Elements.isComparable(comparator, from)) {
                 // this uses the Comparable interface
-                return new TreeMap<ObjectType, List<Integer>>();
+                return new TreeMap<ObjectType, ValueType>();
             }
             else {
                 // this just uses hashCode()
-                return new HashMap<ObjectType, List<Integer>>();
+                return new HashMap<ObjectType, ValueType>();
             }
         }
         else {
             // we don't really want them sorted, but this is the only Map
             // implementation (as of JDK 1.4) that takes a comparator.
-            return new TreeMap<ObjectType, List<Integer>>(comparator);
+            return new TreeMap<ObjectType, ValueType>(comparator);
         }
     }
 
@@ -152,14 +258,6 @@ public class LCS<ObjectType> {
         return toMatches;
     }
 
-    /**
-     * Compares the two objects, using the comparator provided with the
-     * constructor, if any.
-     */
-    protected boolean equals(Comparator<ObjectType> comparator, ObjectType x, ObjectType y) {
-        return comparator == null ? x.equals(y) : comparator.compare(x, y) == 0;
-    }
-
     /**
      * Converts the map into a list.
      */
@@ -171,4 +269,19 @@ public class LCS<ObjectType> {
         }
         return list;
     }
+
+    /**
+     * Converts the array, with -1 for elements without a match, into a list.
+     */
+    protected static List<Integer> toList(int[] matches) {
+        int size = matches.length;
+        while (size > 0 && matches[size - 1] == -1) {
+            --size;
+        }
+        ArrayList<Integer> list = new ArrayList<Integer>(size);
+        for (int idx = 0; idx < size; ++idx) {
+            list.add(matches[idx] == -1 ? null : Integer.valueOf(matches[idx]));
+        }
+        return list;
+    }
 }
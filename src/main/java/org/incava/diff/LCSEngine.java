@@ -0,0 +1,68 @@
+package org.incava.diff;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The default engine, using the Hunt-Szymanski algorithm of <code>LCS</code>.
+ * Its cost grows with the number of matching pairs between the collections,
+ * so it is best for inputs with few repeated elements.
+ */
+public class LCSEngine implements DiffEngine {
+    /**
+     * The executor for numbering the elements in parallel, or null.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The workspace whose buffers are reused, or null.
+     */
+    private final DiffWorkspace workspace;
+
+    /**
+     * Creates the engine, which numbers the elements serially.
+     */
+    public LCSEngine() {
+        this(null, null);
+    }
+
+    /**
+     * Creates the engine, which numbers the elements of large collections in
+     * parallel chunks with the given executor.
+     */
+    public LCSEngine(ExecutorService executor) {
+        this(executor, null);
+    }
+
+    /**
+     * Creates the engine, which reuses the buffers of the workspace, such as
+     * that of <code>DiffWorkspace.forCurrentThread</code>. The engine is then
+     * to be used by one thread at a time.
+     */
+    public LCSEngine(DiffWorkspace workspace) {
+        this(null, workspace);
+    }
+
+    /**
+     * Creates the engine with the given executor and workspace, either of
+     * which may be null.
+     */
+    public LCSEngine(ExecutorService executor, DiffWorkspace workspace) {
+        this.executor = executor;
+        this.workspace = workspace;
+    }
+
+    public <ObjectType> Alignment getAlignment(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp) {
+        LCS<ObjectType> lcs = new LCS<ObjectType>(from, to, comp, executor, workspace);
+        return lcs.getAlignment();
+    }
+
+    /**
+     * Returns the name of the class, as the executor and the workspace do not
+     * change the matches.
+     */
+    public String getKey() {
+        return getClass().getName();
+    }
+}
@@ -1,25 +1,115 @@
 package org.incava.diff;
 
-import java.util.Map;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.TreeMap;
+import java.util.Map;
 
 /**
- * The links as used in the Diff/LCS code.
+ * The links as used in the Diff/LCS code. Each link is a match (i, j) and the
+ * link before it in the chain, and is kept in parallel arrays, by its number,
+ * instead of as an object, so that a link costs twelve bytes and no
+ * allocation, apart from growing the arrays.
  */
 public class LCSTable {
-    private final Map<Integer, Object[]> links;
-    
+    /**
+     * The number of the link before each link, or -1.
+     */
+    private int[] prev;
+
+    /**
+     * The position in "from" of each link.
+     */
+    private int[] fromIdx;
+
+    /**
+     * The position in "to" of each link.
+     */
+    private int[] toIdx;
+
+    /**
+     * The number of links.
+     */
+    private int size;
+
+    /**
+     * The number of the latest link for each key, or -1.
+     */
+    private int[] heads;
+
+    /**
+     * The number of keys that have been set.
+     */
+    private int keys;
+
     public LCSTable() {
-        links = new HashMap<Integer, Object[]>();
+        this(16);
+    }
+
+    /**
+     * Creates the table with room for the given number of links before
+     * growing.
+     */
+    public LCSTable(int capacity) {
+        capacity = Math.max(1, capacity);
+        prev = new int[capacity];
+        fromIdx = new int[capacity];
+        toIdx = new int[capacity];
+        size = 0;
+        heads = new int[16];
+        Arrays.fill(heads, -1);
+        keys = 0;
+    }
+
+    /**
+     * Returns the number of links that can be added before growing.
+     */
+    public int capacity() {
+        return prev.length;
+    }
+
+    /**
+     * Removes all of the links, keeping the arrays for reuse.
+     */
+    public void clear() {
+        Arrays.fill(heads, 0, keys, -1);
+        keys = 0;
+        size = 0;
     }
 
     /**
      * Updates the value for the key <code>k</code>.
      */
-    public void update(Integer i, Integer j, Integer k) {
-        Object value = k > 0 ? links.get(k - 1) : null;
-        links.put(k, new Object[] { value, i, j });
+    public void update(int i, int j, int k) {
+        if (size == prev.length) {
+            int capacity = 2 * size;
+            prev = Arrays.copyOf(prev, capacity);
+            fromIdx = Arrays.copyOf(fromIdx, capacity);
+            toIdx = Arrays.copyOf(toIdx, capacity);
+        }
+
+        if (k >= heads.length) {
+            int length = heads.length;
+            heads = Arrays.copyOf(heads, Math.max(k + 1, 2 * length));
+            Arrays.fill(heads, length, heads.length, -1);
+        }
+
+        prev[size] = k > 0 ? heads[k - 1] : -1;
+        fromIdx[size] = i;
+        toIdx[size] = j;
+        heads[k] = size++;
+        keys = Math.max(keys, k + 1);
+    }
+
+    /**
+     * Sets in <code>matches</code>, indexed by the position in "from", the
+     * positions in "to" of the links starting from <code>key</code>.
+     */
+    public void addChain(int key, int[] matches) {
+        int link = key < heads.length ? heads[key] : -1;
+        while (link != -1) {
+            matches[fromIdx[link]] = toIdx[link];
+            link = prev[link];
+        }
     }
 
     /**
@@ -27,12 +117,10 @@ public class LCSTable {
      */
     public Map<Integer, Integer> getChain(Integer key) {
         Map<Integer, Integer> chain = new HashMap<Integer, Integer>();
-        Object[] link = links.get(key);
-        while (link != null) {
-            Integer x = (Integer)link[1];
-            Integer y = (Integer)link[2];
-            chain.put(x, y);
-            link = (Object[])link[0];
+        int link = key < heads.length ? heads[key] : -1;
+        while (link != -1) {
+            chain.put(fromIdx[link], toIdx[link]);
+            link = prev[link];
         }
         return chain;
     }
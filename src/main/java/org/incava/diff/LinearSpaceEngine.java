@@ -0,0 +1,300 @@
+package org.incava.diff;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * An engine using the linear space refinement of the Myers algorithm, which
+ * finds the "middle snake" of the edit path by searching forward and backward
+ * at the same time, then recurses on each side of it. Beyond the result, it
+ * uses memory proportional to N+M, regardless of the number of matches, and
+ * so is best for very large sequences.
+ */
+public class LinearSpaceEngine extends MyersEngine {
+    /**
+     * Creates the engine, which always finds a minimal result.
+     */
+    public LinearSpaceEngine() {
+        super();
+    }
+
+    /**
+     * Creates the engine, which, when the search for a middle snake exceeds
+     * <code>maxCost</code> edits, splits the ranges at the point furthest
+     * along either search, as GNU diff does. This gives a valid but possibly
+     * not minimal result.
+     */
+    public LinearSpaceEngine(int maxCost) {
+        super(maxCost);
+    }
+
+    public boolean addMatches(ElementMatcher matcher, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd) {
+        // both of the vectors are shared by the searches of all the ranges:
+        int maxD = (fromEnd - fromStart + toEnd - toStart + 3) / 2;
+        int[] forward = new int[2 * maxD + 2];
+        int[] backward = new int[2 * maxD + 2];
+
+        boolean minimal = bisect(matcher, matches, fromStart, fromEnd + 1, toStart, toEnd + 1, forward, backward);
+        shiftMatches(matcher, matches, fromStart, fromEnd, toStart);
+        return minimal;
+    }
+
+    /**
+     * Moves each match to the earliest equal element after the previous match,
+     * as the greedy search would have found it. The number of matches is
+     * unchanged, and the deletions and additions only slide toward the end,
+     * so adjacent ones join where the middle snakes had split them.
+     */
+    protected void shiftMatches(ElementMatcher matcher, int[] matches, int fromStart, int fromEnd, int toStart) {
+        int prevFrom = fromStart - 1;
+        int prevTo = toStart - 1;
+
+        for (int fromIdx = fromStart; fromIdx <= fromEnd; ++fromIdx) {
+            int toIdx = matches[fromIdx];
+            if (toIdx == -1) {
+                continue;
+            }
+
+            // an element is equal to from[fromIdx] if it matches to[toIdx],
+            // and the other way around:
+            int earliest = prevFrom + 1;
+            while (earliest < fromIdx && !matcher.matches(earliest, toIdx)) {
+                ++earliest;
+            }
+
+            if (earliest < fromIdx) {
+                matches[fromIdx] = -1;
+                matches[earliest] = toIdx;
+                prevFrom = earliest;
+                prevTo = toIdx;
+                // the elements after the new position are unmatched again:
+                fromIdx = earliest;
+                continue;
+            }
+
+            earliest = prevTo + 1;
+            while (earliest < toIdx && !matcher.matches(fromIdx, earliest)) {
+                ++earliest;
+            }
+
+            matches[fromIdx] = earliest;
+            prevFrom = fromIdx;
+            prevTo = earliest;
+        }
+    }
+
+    /**
+     * Sets the matches for the given ranges, which are exclusive of the end
+     * points, splitting them at the middle snake, then doing the same for each
+     * side of it. Returns whether the matches are minimal.
+     */
+    protected boolean bisect(ElementMatcher matcher, int[] matches,
+                             int fromStart, int fromEnd, int toStart, int toEnd,
+                             int[] forward, int[] backward) {
+        boolean minimal = true;
+        int[] split = new int[3];
+
+        // the ranges yet to be done. This is not recursive, since past the
+        // maximum cost, a split can be only a few edits into its ranges, so
+        // the depth could be in proportion to their size:
+        Deque<int[]> ranges = new ArrayDeque<int[]>();
+        ranges.push(new int[] { fromStart, fromEnd, toStart, toEnd });
+
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int fs = range[0];
+            int fe = range[1];
+            int ts = range[2];
+            int te = range[3];
+
+            // common beginning and ending elements:
+            while (fs < fe && ts < te && matcher.matches(fs, ts)) {
+                matches[fs++] = ts++;
+            }
+
+            while (fs < fe && ts < te && matcher.matches(fe - 1, te - 1)) {
+                matches[--fe] = --te;
+            }
+
+            if (fs == fe || ts == te) {
+                continue;
+            }
+
+            // with the ends trimmed, there are at least two edits, so the
+            // split point is within both ranges, and each side has fewer
+            // edits:
+            split[2] = 0;
+            if (!findMiddleSnake(matcher, fs, fe - fs, ts, te - ts, forward, backward, split)) {
+                continue;
+            }
+
+            int fromSplit = fs + split[0];
+            int toSplit = ts + split[1];
+            minimal &= split[2] == 0;
+            ranges.push(new int[] { fromSplit, fe, toSplit, te });
+            ranges.push(new int[] { fs, fromSplit, ts, toSplit });
+        }
+
+        return minimal;
+    }
+
+    /**
+     * Finds where the forward and backward searches meet, setting the point,
+     * relative to the starts of the ranges, in <code>split</code>. If the
+     * search exceeds the maximum cost, the point is instead the one furthest
+     * along either search, and the third element of <code>split</code> is set
+     * to 1. Returns false if the ranges have nothing in common.
+     */
+    protected boolean findMiddleSnake(ElementMatcher matcher,
+                                      int fromStart, int n, int toStart, int m,
+                                      int[] forward, int[] backward, int[] split) {
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+
+        // forward[offset + k] is the furthest x on diagonal k going forward,
+        // and backward[offset + k] the same, counted from the ends. Only the
+        // diagonals within the radius have been cleared, as they are reached,
+        // so that a search that stops early, as past the maximum cost, does
+        // not cost the size of the ranges:
+        int radius = 1;
+        forward[offset - 1] = -1;
+        forward[offset] = -1;
+        forward[offset + 1] = 0;
+        backward[offset - 1] = -1;
+        backward[offset] = -1;
+        backward[offset + 1] = 0;
+
+        int delta = n - m;
+        // if odd, the paths overlap when going forward; else when backward:
+        boolean front = delta % 2 != 0;
+
+        // the diagonals that have gone off the edges of the ranges:
+        int kfStart = 0;
+        int kfEnd = 0;
+        int kbStart = 0;
+        int kbEnd = 0;
+
+        for (int d = 0; d < maxD; ++d) {
+            if (d + 1 > radius) {
+                radius = d + 1;
+                forward[offset - radius] = -1;
+                forward[offset + radius] = -1;
+                backward[offset - radius] = -1;
+                backward[offset + radius] = -1;
+            }
+
+            for (int k = -d + kfStart; k <= d - kfEnd; k += 2) {
+                int idx = offset + k;
+                int x;
+                if (k == -d || (k != d && forward[idx - 1] < forward[idx + 1])) {
+                    x = forward[idx + 1];
+                }
+                else {
+                    x = forward[idx - 1] + 1;
+                }
+                int y = x - k;
+
+                while (x < n && y < m && matcher.matches(fromStart + x, toStart + y)) {
+                    ++x;
+                    ++y;
+                }
+                forward[idx] = x;
+
+                if (x > n) {
+                    kfEnd += 2;
+                }
+                else if (y > m) {
+                    kfStart += 2;
+                }
+                else if (front) {
+                    int bidx = offset + delta - k;
+                    if (Math.abs(bidx - offset) <= radius && backward[bidx] != -1 && x >= n - backward[bidx]) {
+                        split[0] = x;
+                        split[1] = y;
+                        return true;
+                    }
+                }
+            }
+
+            for (int k = -d + kbStart; k <= d - kbEnd; k += 2) {
+                int idx = offset + k;
+                int x;
+                if (k == -d || (k != d && backward[idx - 1] < backward[idx + 1])) {
+                    x = backward[idx + 1];
+                }
+                else {
+                    x = backward[idx - 1] + 1;
+                }
+                int y = x - k;
+
+                while (x < n && y < m && matcher.matches(fromStart + n - x - 1, toStart + m - y - 1)) {
+                    ++x;
+                    ++y;
+                }
+                backward[idx] = x;
+
+                if (x > n) {
+                    kbEnd += 2;
+                }
+                else if (y > m) {
+                    kbStart += 2;
+                }
+                else if (!front) {
+                    int fidx = offset + delta - k;
+                    if (Math.abs(fidx - offset) <= radius && forward[fidx] != -1) {
+                        int fx = forward[fidx];
+                        if (fx >= n - x) {
+                            split[0] = fx;
+                            split[1] = fx - (fidx - offset);
+                            return true;
+                        }
+                    }
+                }
+            }
+
+            if (d >= getMaxCost() && findFurthest(n, m, d, offset, forward, backward, kfStart, kfEnd, kbStart, kbEnd, split)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Sets in <code>split</code> the point furthest along either search, and
+     * marks the split as not minimal. Returns false if there is no point
+     * strictly within the ranges.
+     */
+    protected boolean findFurthest(int n, int m, int d, int offset, int[] forward, int[] backward,
+                                   int kfStart, int kfEnd, int kbStart, int kbEnd, int[] split) {
+        int best = 0;
+
+        for (int k = -d + kfStart; k <= d - kfEnd; k += 2) {
+            int x = forward[offset + k];
+            int y = x - k;
+            if (x <= n && y >= 0 && y <= m && x + y < n + m && x + y > best) {
+                best = x + y;
+                split[0] = x;
+                split[1] = y;
+            }
+        }
+
+        for (int k = -d + kbStart; k <= d - kbEnd; k += 2) {
+            int x = backward[offset + k];
+            int y = x - k;
+            if (x <= n && y >= 0 && y <= m && x + y < n + m && x + y > best) {
+                best = x + y;
+                split[0] = n - x;
+                split[1] = m - y;
+            }
+        }
+
+        if (best == 0) {
+            return false;
+        }
+
+        split[2] = 1;
+        return true;
+    }
+}
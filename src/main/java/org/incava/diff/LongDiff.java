@@ -0,0 +1,74 @@
+package org.incava.diff;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compares two ranges of arrays of <code>long</code>, such as lists of IDs or
+ * hashes, with the differences in the same form as <code>Diff</code>. The
+ * positions of the differences are relative to the starts of the ranges. The
+ * values are compared directly in the arrays, by a Myers engine, so none are
+ * boxed.
+ */
+public class LongDiff extends PrimitiveDiff<Long> {
+    /**
+     * A view of a range of the array as a list.
+     */
+    protected static class LongList extends RangeList<Long> {
+        private final long[] values;
+
+        public LongList(long[] values, int offset, int length) {
+            super(values.length, offset, length);
+            this.values = values;
+        }
+
+        protected Long getValue(int index) {
+            return values[index];
+        }
+
+        public ByteBuffer getBytes() {
+            ByteBuffer bytes = ByteBuffer.allocate(8 * size());
+            bytes.asLongBuffer().put(values, getOffset(), size());
+            return bytes;
+        }
+    }
+
+    /**
+     * The source values, AKA the "from" values.
+     */
+    private final long[] from;
+
+    /**
+     * The target values, AKA the "to" values.
+     */
+    private final long[] to;
+
+    /**
+     * Constructs the LongDiff object for the two arrays.
+     */
+    public LongDiff(long[] from, long[] to) {
+        this(from, 0, from.length, to, 0, to.length);
+    }
+
+    /**
+     * Constructs the LongDiff object for the two ranges of arrays, using a
+     * <code>LinearSpaceEngine</code>, so that the memory used is proportional
+     * to the lengths of the ranges.
+     */
+    public LongDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength) {
+        this(from, fromOffset, fromLength, to, toOffset, toLength, new LinearSpaceEngine());
+    }
+
+    /**
+     * Constructs the LongDiff object for the two ranges of arrays, using the
+     * given engine, which compares the values by their positions.
+     */
+    public LongDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength, MatcherEngine engine) {
+        super(new LongList(from, fromOffset, fromLength), new LongList(to, toOffset, toLength), engine);
+        this.from = from;
+        this.to = to;
+    }
+
+    protected boolean isEqual(int fromIdx, int toIdx) {
+        return from[fromIdx] == to[toIdx];
+    }
+}
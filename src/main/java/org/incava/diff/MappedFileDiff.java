@@ -0,0 +1,85 @@
+package org.incava.diff;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares the lines of two files, which are mapped into memory as
+ * <code>MappedLines</code>, so that neither file is read into the heap as
+ * strings. The engine numbers the lines by their hashes, and lines with the
+ * same hash are compared by their bytes in the mapped files. With a
+ * <code>MatcherEngine</code>, such as <code>MyersEngine</code>, the lines are
+ * compared by index, so not even a lightweight element is created for each.
+ */
+public class MappedFileDiff extends Diff<MappedLines.Line> {
+    /**
+     * The lines of the source file, AKA the "from" values.
+     */
+    private final MappedLines from;
+
+    /**
+     * The lines of the target file, AKA the "to" values.
+     */
+    private final MappedLines to;
+
+    /**
+     * The engine that finds the matches.
+     */
+    private final DiffEngine engine;
+
+    /**
+     * Constructs the MappedFileDiff object for the two files, using the
+     * default engine.
+     */
+    public MappedFileDiff(File from, File to) throws IOException {
+        this(new MappedLines(from), new MappedLines(to));
+    }
+
+    /**
+     * Constructs the MappedFileDiff object for the lines of two files, using
+     * the default engine.
+     */
+    public MappedFileDiff(MappedLines from, MappedLines to) {
+        this(from, to, new LCSEngine());
+    }
+
+    /**
+     * Constructs the MappedFileDiff object for the lines of two files, using
+     * the given engine, such as a <code>LinearSpaceEngine</code> for large
+     * files with few differences.
+     */
+    public MappedFileDiff(MappedLines from, MappedLines to, DiffEngine engine) {
+        super(from.asList(), to.asList(), null, engine);
+        this.from = from;
+        this.to = to;
+        this.engine = engine;
+    }
+
+    /**
+     * Returns the lines of the source file.
+     */
+    public MappedLines getFromLines() {
+        return from;
+    }
+
+    /**
+     * Returns the lines of the target file.
+     */
+    public MappedLines getToLines() {
+        return to;
+    }
+
+    protected Alignment getAlignment() {
+        if (engine instanceof MatcherEngine) {
+            ElementMatcher matcher = new ElementMatcher() {
+                public boolean matches(int fromIdx, int toIdx) {
+                    return from.equals(fromIdx, to, toIdx);
+                }
+            };
+            return ((MatcherEngine)engine).getAlignment(matcher, from.size(), to.size());
+        }
+        else {
+            return super.getAlignment();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.incava.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The lines of a file, which is mapped into memory, each kept as its offset,
+ * length, and the hash of its bytes, so that the contents of the file are not
+ * read into the heap, nor decoded. Lines end with a newline, which is not
+ * part of them, and a last line without a newline is the same as with one.
+ *
+ * <p>Files larger than 2 GB are mapped in segments, so a file is limited only
+ * by the address space, and by the arrays of the lines.</p>
+ */
+public class MappedLines {
+    /**
+     * The number of bytes of each mapped segment but the last.
+     */
+    protected static final int SEGMENT_BITS = 30;
+
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    /**
+     * A line, as an element of <code>asList</code>, equal to another line if
+     * their bytes are the same.
+     */
+    public static class Line {
+        private final MappedLines lines;
+
+        private final int index;
+
+        public Line(MappedLines lines, int index) {
+            this.lines = lines;
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean equals(Object obj) {
+            if (obj instanceof Line) {
+                Line other = (Line)obj;
+                return lines.equals(index, other.lines, other.index);
+            }
+            else {
+                return false;
+            }
+        }
+
+        public int hashCode() {
+            return lines.getHash(index);
+        }
+
+        public String toString() {
+            return lines.getString(index, Charset.defaultCharset());
+        }
+    }
+
+    /**
+     * The mapped segments of the file.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * The offset of each line in the file.
+     */
+    private long[] starts;
+
+    /**
+     * The number of bytes of each line, without its newline.
+     */
+    private int[] lengths;
+
+    /**
+     * The hash of the bytes of each line.
+     */
+    private int[] hashes;
+
+    /**
+     * The number of lines.
+     */
+    private int size;
+
+    /**
+     * Maps the file into memory, and finds its lines.
+     */
+    public MappedLines(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            int count = (int)((length + SEGMENT_MASK) >>> SEGMENT_BITS);
+            this.segments = new MappedByteBuffer[count];
+            for (int seg = 0; seg < count; ++seg) {
+                long offset = (long)seg << SEGMENT_BITS;
+                segments[seg] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(length - offset, 1L << SEGMENT_BITS));
+            }
+        }
+        finally {
+            // the mapping remains valid after the file is closed:
+            raf.close();
+        }
+
+        this.starts = new long[16];
+        this.lengths = new int[16];
+        this.hashes = new int[16];
+        this.size = 0;
+        findLines();
+    }
+
+    /**
+     * Scans the mapped bytes for newlines, hashing each line as it goes.
+     */
+    private void findLines() {
+        long start = 0;
+        long pos = 0;
+        int hash = 0;
+        for (MappedByteBuffer segment : segments) {
+            int limit = segment.limit();
+            for (int idx = 0; idx < limit; ++idx, ++pos) {
+                byte b = segment.get(idx);
+                if (b == '\n') {
+                    addLine(start, pos, hash);
+                    start = pos + 1;
+                    hash = 0;
+                }
+                else {
+                    hash = 31 * hash + b;
+                }
+            }
+        }
+        if (start < pos) {
+            addLine(start, pos, hash);
+        }
+    }
+
+    private void addLine(long start, long end, int hash) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        starts[size] = start;
+        lengths[size] = (int)(end - start);
+        hashes[size] = hash;
+        ++size;
+    }
+
+    /**
+     * Returns the number of lines.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the line in the file.
+     */
+    public long getStart(int line) {
+        return starts[line];
+    }
+
+    /**
+     * Returns the number of bytes of the line, without its newline.
+     */
+    public int getLength(int line) {
+        return lengths[line];
+    }
+
+    /**
+     * Returns the hash of the bytes of the line.
+     */
+    public int getHash(int line) {
+        return hashes[line];
+    }
+
+    /**
+     * Returns the byte at the offset in the file.
+     */
+    public byte getByte(long pos) {
+        return segments[(int)(pos >>> SEGMENT_BITS)].get((int)(pos & SEGMENT_MASK));
+    }
+
+    /**
+     * Returns whether the line has the same bytes as the line of the other
+     * file, comparing the hashes and the lengths before the bytes.
+     */
+    public boolean equals(int line, MappedLines other, int otherLine) {
+        if (hashes[line] != other.hashes[otherLine] || lengths[line] != other.lengths[otherLine]) {
+            return false;
+        }
+        long pos = starts[line];
+        long otherPos = other.starts[otherLine];
+        for (int idx = 0; idx < lengths[line]; ++idx) {
+            if (getByte(pos + idx) != other.getByte(otherPos + idx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the bytes of the line.
+     */
+    public byte[] getBytes(int line) {
+        byte[] bytes = new byte[lengths[line]];
+        for (int idx = 0; idx < bytes.length; ++idx) {
+            bytes[idx] = getByte(starts[line] + idx);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the line decoded with the charset, for output.
+     */
+    public String getString(int line, Charset charset) {
+        return new String(getBytes(line), charset);
+    }
+
+    /**
+     * Returns a view of the lines as a list, each line created as it is
+     * gotten.
+     */
+    public List<Line> asList() {
+        return new AbstractList<Line>() {
+            public Line get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("index: " + index + "; size: " + size);
+                }
+                return new Line(MappedLines.this, index);
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package org.incava.diff;
+
+/**
+ * An engine that can find the matches with only an
+ * <code>ElementMatcher</code>, comparing the elements by their positions, so
+ * that it can run on sequences that are not lists of objects, such as arrays
+ * of primitives or the lines of mapped files. Engines that must hash or order
+ * the elements, such as <code>HistogramEngine</code>, cannot.
+ */
+public interface MatcherEngine extends DiffEngine {
+    /**
+     * Returns the matches between sequences of the given sizes, with the
+     * elements compared by <code>matcher</code>.
+     */
+    public Alignment getAlignment(ElementMatcher matcher, int fromSize, int toSize);
+}
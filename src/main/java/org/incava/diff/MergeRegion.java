@@ -0,0 +1,134 @@
+package org.incava.diff;
+
+/**
+ * A region of a three-way merge, as found by <code>Diff3</code>: the ranges
+ * of the base, "ours", and "theirs" collections that correspond, each from
+ * its start to its end, exclusive.
+ */
+public class MergeRegion {
+    /**
+     * The three ranges are the same.
+     */
+    public static final int STABLE = 0;
+
+    /**
+     * Only "ours" changed the base, so the merge takes "ours".
+     */
+    public static final int OURS = 1;
+
+    /**
+     * Only "theirs" changed the base, so the merge takes "theirs".
+     */
+    public static final int THEIRS = 2;
+
+    /**
+     * Both changed the base in the same way, so the merge takes either.
+     */
+    public static final int BOTH = 3;
+
+    /**
+     * Both changed the base, differently.
+     */
+    public static final int CONFLICT = 4;
+
+    private final int type;
+
+    private final int baseStart;
+
+    private final int baseEnd;
+
+    private final int oursStart;
+
+    private final int oursEnd;
+
+    private final int theirsStart;
+
+    private final int theirsEnd;
+
+    public MergeRegion(int type, int baseStart, int baseEnd, int oursStart, int oursEnd, int theirsStart, int theirsEnd) {
+        this.type = type;
+        this.baseStart = baseStart;
+        this.baseEnd = baseEnd;
+        this.oursStart = oursStart;
+        this.oursEnd = oursEnd;
+        this.theirsStart = theirsStart;
+        this.theirsEnd = theirsEnd;
+    }
+
+    /**
+     * The type of the region, such as <code>STABLE</code> or
+     * <code>CONFLICT</code>.
+     */
+    public int getType() {
+        return type;
+    }
+
+    public int getBaseStart() {
+        return baseStart;
+    }
+
+    public int getBaseEnd() {
+        return baseEnd;
+    }
+
+    public int getOursStart() {
+        return oursStart;
+    }
+
+    public int getOursEnd() {
+        return oursEnd;
+    }
+
+    public int getTheirsStart() {
+        return theirsStart;
+    }
+
+    public int getTheirsEnd() {
+        return theirsEnd;
+    }
+
+    /**
+     * Returns whether the region is merged without a conflict.
+     */
+    public boolean isClean() {
+        return type != CONFLICT;
+    }
+
+    public boolean equals(Object obj) {
+        if (obj instanceof MergeRegion) {
+            MergeRegion other = (MergeRegion)obj;
+            return (type        == other.type &&
+                    baseStart   == other.baseStart &&
+                    baseEnd     == other.baseEnd &&
+                    oursStart   == other.oursStart &&
+                    oursEnd     == other.oursEnd &&
+                    theirsStart == other.theirsStart &&
+                    theirsEnd   == other.theirsEnd);
+        }
+        else {
+            return false;
+        }
+    }
+
+    public int hashCode() {
+        int hash = type;
+        hash = 31 * hash + baseStart;
+        hash = 31 * hash + baseEnd;
+        hash = 31 * hash + oursStart;
+        hash = 31 * hash + oursEnd;
+        hash = 31 * hash + theirsStart;
+        hash = 31 * hash + theirsEnd;
+        return hash;
+    }
+
+    /**
+     * Returns a string representation of this region.
+     */
+    public String toString() {
+        String[] names = new String[] { "stable", "ours", "theirs", "both", "conflict" };
+        return (names[type] +
+                " base[" + baseStart + ", " + baseEnd + ")" +
+                " ours[" + oursStart + ", " + oursEnd + ")" +
+                " theirs[" + theirsStart + ", " + theirsEnd + ")");
+    }
+}
@@ -0,0 +1,15 @@
+package org.incava.diff;
+
+/**
+ * Receives the regions from <code>Diff3.execute(MergeVisitor)</code> as each
+ * is found, instead of in a list. The ranges are of the base, "ours", and
+ * "theirs" collections, each from its start to its end, exclusive, so that an
+ * empty range has its start equal to its end.
+ */
+public interface MergeVisitor {
+    /**
+     * Invoked for each region, in order, with its type, one of the constants
+     * of <code>MergeRegion</code>.
+     */
+    public void onRegion(int type, int baseStart, int baseEnd, int oursStart, int oursEnd, int theirsStart, int theirsEnd);
+}
@@ -0,0 +1,237 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An engine using the greedy O((N+M)D) algorithm of Eugene Myers, "An O(ND)
+ * Difference Algorithm and Its Variations". Its cost grows with the size of
+ * the edit, D, and not with the number of repeated elements, so it is best for
+ * similar inputs, such as successive revisions of a file.
+ */
+public class MyersEngine extends AbstractDiffEngine implements MatcherEngine {
+    /**
+     * The number of edits to search before giving up on a minimal result.
+     */
+    private final int maxCost;
+
+    /**
+     * Creates the engine, which always finds a minimal result.
+     */
+    public MyersEngine() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates the engine, which, after searching <code>maxCost</code> edits
+     * without reaching the ends of the ranges, takes the path that has gone
+     * the furthest, then searches again from its end. Like the "too
+     * expensive" heuristic of GNU diff, this bounds the time to about
+     * <code>maxCost</code> times the size of the input, and gives a valid but
+     * possibly not minimal result.
+     */
+    public MyersEngine(int maxCost) {
+        this.maxCost = Math.max(1, maxCost);
+    }
+
+    /**
+     * Returns the number of edits to search before giving up on a minimal
+     * result.
+     */
+    public int getMaxCost() {
+        return maxCost;
+    }
+
+    public String getKey() {
+        return getClass().getName() + "(" + maxCost + ")";
+    }
+
+    public <ObjectType> boolean addMatches(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd) {
+        return addMatches(createMatcher(from, to, comp), matches, fromStart, fromEnd, toStart, toEnd);
+    }
+
+    /**
+     * Returns the matches between sequences of the given sizes, with the
+     * elements compared by <code>matcher</code>.
+     */
+    public Alignment getAlignment(ElementMatcher matcher, int fromSize, int toSize) {
+        int[] matches = new int[fromSize];
+        Arrays.fill(matches, -1);
+        int[] ranges = addCommonMatches(matcher, matches, fromSize, toSize);
+
+        boolean minimal = true;
+        if (ranges[0] <= ranges[1] && ranges[2] <= ranges[3]) {
+            minimal = addMatches(matcher, matches, ranges[0], ranges[1], ranges[2], ranges[3]);
+        }
+
+        return new Alignment(matches, minimal);
+    }
+
+    /**
+     * Sets in <code>matches</code> the matches for the given ranges, which are
+     * inclusive, with the elements compared by <code>matcher</code>. Returns
+     * whether the matches are known to be minimal.
+     */
+    public boolean addMatches(ElementMatcher matcher, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd) {
+        boolean minimal = true;
+        int[] end = new int[2];
+
+        while (!search(matcher, matches, fromStart, fromEnd, toStart, toEnd, maxCost, end)) {
+            // too expensive, so continue from the furthest point:
+            minimal = false;
+            fromStart += end[0];
+            toStart += end[1];
+        }
+
+        return minimal;
+    }
+
+    /**
+     * Returns the matches between the two collections if they differ by no
+     * more than <code>maxDistance</code> elements added and deleted, and
+     * otherwise null. Only the diagonals within <code>maxDistance</code> of
+     * the start are searched, so the time is about <code>maxDistance</code>
+     * times the size of the input, and the search stops as soon as the
+     * distance is exceeded.
+     */
+    public <ObjectType> Alignment getAlignment(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int maxDistance) {
+        return getAlignment(createMatcher(from, to, comp), from.size(), to.size(), maxDistance);
+    }
+
+    /**
+     * Returns the matches between sequences of the given sizes, with the
+     * elements compared by <code>matcher</code>, if they differ by no more
+     * than <code>maxDistance</code> elements added and deleted, and otherwise
+     * null.
+     */
+    public Alignment getAlignment(ElementMatcher matcher, int fromSize, int toSize, int maxDistance) {
+        int[] matches = new int[fromSize];
+        Arrays.fill(matches, -1);
+        int[] ranges = addCommonMatches(matcher, matches, fromSize, toSize);
+        int fromStart = ranges[0];
+        int fromEnd = ranges[1];
+        int toStart = ranges[2];
+        int toEnd = ranges[3];
+
+        int n = fromEnd - fromStart + 1;
+        int m = toEnd - toStart + 1;
+
+        if (Math.abs(n - m) > maxDistance) {
+            return null;
+        }
+        else if (n > 0 && m > 0 && !search(matcher, matches, fromStart, fromEnd, toStart, toEnd, maxDistance, null)) {
+            return null;
+        }
+        else {
+            return new Alignment(matches, true);
+        }
+    }
+
+    /**
+     * Searches from the starts of the ranges, setting the matches of the path
+     * to the ends, and returning true. If that exceeds <code>limit</code>
+     * edits, this returns false, and, if <code>end</code> is not null, sets the
+     * matches of the path that has gone the furthest, and sets
+     * <code>end</code> to the point that it reached, relative to the starts.
+     */
+    protected boolean search(ElementMatcher matcher, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd, int limit, int[] end) {
+        int n = fromEnd - fromStart + 1;
+        int m = toEnd - toStart + 1;
+        // the diagonals searched are only those within the limit:
+        int max = Math.min(n + m, limit);
+
+        // v[offset + k] is the furthest x reached on diagonal k = x - y:
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<int[]>();
+
+        for (int d = 0; d <= max; ++d) {
+            // the state from the previous step, for diagonals -d through d:
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                }
+                else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+
+                while (x < n && y < m && matcher.matches(fromStart + x, toStart + y)) {
+                    ++x;
+                    ++y;
+                }
+                v[offset + k] = x;
+
+                if (x >= n && y >= m) {
+                    backtrack(trace, matches, n, m, fromStart, toStart);
+                    return true;
+                }
+            }
+
+            if (d >= limit) {
+                if (end == null) {
+                    return false;
+                }
+
+                // the furthest point within the ranges:
+                int best = Integer.MIN_VALUE;
+                for (int k = -d; k <= d; k += 2) {
+                    int x = v[offset + k];
+                    int y = x - k;
+                    if (x <= n && y <= m && x + y > best) {
+                        best = x + y;
+                        end[0] = x;
+                        end[1] = y;
+                    }
+                }
+                backtrack(trace, matches, end[0], end[1], fromStart, toStart);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Walks back through the saved states, from the point (x, y) to the
+     * start, setting the matches along the diagonals.
+     */
+    protected void backtrack(List<int[]> trace, int[] matches, int x, int y, int fromStart, int toStart) {
+        for (int d = trace.size() - 1; d > 0; --d) {
+            int[] prev = trace.get(d);
+            int k = x - y;
+
+            // prev[d + k] is the value for diagonal k in the previous step:
+            int prevK;
+            if (k == -d || (k != d && prev[d + k - 1] < prev[d + k + 1])) {
+                prevK = k + 1;
+            }
+            else {
+                prevK = k - 1;
+            }
+
+            int prevX = prev[d + prevK];
+            int prevY = prevX - prevK;
+
+            while (x > prevX && y > prevY) {
+                --x;
+                --y;
+                matches[fromStart + x] = toStart + y;
+            }
+
+            x = prevX;
+            y = prevY;
+        }
+
+        while (x > 0 && y > 0) {
+            --x;
+            --y;
+            matches[fromStart + x] = toStart + y;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.incava.diff;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads differences from the binary form written by
+ * <code>PatchEncoder</code>, passing them to a visitor, without creating them
+ * as objects, and, if the patch has them, reading the added elements with the
+ * codec.
+ */
+public class PatchDecoder<ObjectType> {
+    /**
+     * The patch, from its current position.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The codec of the added elements, or null.
+     */
+    private final ElementCodec<ObjectType> codec;
+
+    /**
+     * Whether the patch has the added elements.
+     */
+    private final boolean payload;
+
+    /**
+     * Creates the decoder of the patch from the position of the buffer.
+     */
+    public PatchDecoder(ByteBuffer buffer) {
+        this(buffer, null);
+    }
+
+    /**
+     * Creates the decoder of the patch from the position of the buffer, with
+     * the codec for the added elements.
+     */
+    public PatchDecoder(ByteBuffer buffer, ElementCodec<ObjectType> codec) {
+        this.buffer = buffer;
+        this.codec = codec;
+        for (byte b : PatchEncoder.MAGIC) {
+            if (!buffer.hasRemaining() || buffer.get() != b) {
+                throw new IllegalArgumentException("not a patch, or of another version");
+            }
+        }
+        this.payload = (getByte() & PatchEncoder.FLAG_PAYLOAD) != 0;
+    }
+
+    /**
+     * Returns whether the patch has the added elements.
+     */
+    public boolean hasPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns the differences, as objects.
+     */
+    public List<Difference> decode() {
+        final List<Difference> differences = new ArrayList<Difference>();
+        decode(new DiffVisitor() {
+            public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+                differences.add(new Difference(delStart, delEnd, addStart, addEnd));
+            }
+        }, null);
+        return differences;
+    }
+
+    /**
+     * Passes the differences to the visitor, skipping the added elements.
+     */
+    public void decode(DiffVisitor visitor) {
+        decode(visitor, null);
+    }
+
+    /**
+     * Passes the differences to the visitor, and if <code>added</code> is not
+     * null, adds to it the added elements of each, before it is passed. This
+     * requires a patch with them, and a codec. A patch that is cut short, or
+     * whose numbers are out of range, is rejected with an
+     * <code>IllegalArgumentException</code>.
+     */
+    public void decode(DiffVisitor visitor, List<ObjectType> added) {
+        if (added != null && (!payload || codec == null)) {
+            throw new IllegalStateException("the patch has no added elements, or there is no codec");
+        }
+
+        int fromEnd = 0;
+        int toEnd = 0;
+        while (true) {
+            int delCount = getVarint();
+            int addCount = getVarint();
+            if (delCount == 0 && addCount == 0) {
+                break;
+            }
+            int gap = getVarint();
+            if ((long)fromEnd + gap + delCount > Integer.MAX_VALUE || (long)toEnd + gap + addCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid varint in patch");
+            }
+
+            if (payload) {
+                for (int idx = 0; idx < addCount; ++idx) {
+                    int length = getVarint();
+                    if (length > buffer.remaining()) {
+                        throw new IllegalArgumentException("patch is truncated");
+                    }
+                    else if (added == null) {
+                        buffer.position(buffer.position() + length);
+                    }
+                    else {
+                        added.add(codec.decode(buffer, length));
+                    }
+                }
+            }
+
+            int delStart = fromEnd + gap;
+            int addStart = toEnd + gap;
+            visitor.onDifference(delStart, delCount == 0 ? Difference.NONE : delStart + delCount - 1, addStart, addCount == 0 ? Difference.NONE : addStart + addCount - 1);
+            fromEnd = delStart + delCount;
+            toEnd = addStart + addCount;
+        }
+    }
+
+    /**
+     * Returns the next number, which must not exceed
+     * <code>Integer.MAX_VALUE</code>.
+     */
+    private int getVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = getByte();
+            value |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (value > Integer.MAX_VALUE) {
+                    break;
+                }
+                return (int)value;
+            }
+        }
+        throw new IllegalArgumentException("invalid varint in patch");
+    }
+
+    private int getByte() {
+        if (!buffer.hasRemaining()) {
+            throw new IllegalArgumentException("patch is truncated");
+        }
+        return buffer.get() & 0xff;
+    }
+}
@@ -0,0 +1,206 @@
+package org.incava.diff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Writes differences in a compact binary form, as they are passed from
+ * <code>Differ.execute(DiffVisitor)</code>, to be read by
+ * <code>PatchDecoder</code>. Each difference is written as the numbers of
+ * deleted and added elements, and the number of matching elements since the
+ * last difference, which is the same in "from" and "to", so its positions
+ * are not written. The numbers are varints, of seven bits to a byte, so that
+ * most differences take three bytes. With a codec, the added elements follow
+ * each difference, so that the patch can be applied without "to".
+ *
+ * <p>The format is the four bytes of <code>MAGIC</code>, a byte of flags, the
+ * differences, and two zero bytes. The bytes are written to a buffer, which
+ * grows, or, with a channel, is written to it when full.</p>
+ */
+public class PatchEncoder<ObjectType> implements DiffVisitor {
+    /**
+     * The first bytes of a patch, with the version of the format.
+     */
+    public static final byte[] MAGIC = new byte[] { 'j', 'd', 'p', 1 };
+
+    /**
+     * The flag that the added elements are in the patch.
+     */
+    public static final int FLAG_PAYLOAD = 1;
+
+    /**
+     * The "to" collection, for the added elements, or null.
+     */
+    private final List<ObjectType> to;
+
+    /**
+     * The codec of the added elements, or null.
+     */
+    private final ElementCodec<ObjectType> codec;
+
+    /**
+     * The channel, or null to keep the patch in the buffer.
+     */
+    private final WritableByteChannel channel;
+
+    private ByteBuffer buffer;
+
+    /**
+     * The ends, exclusive, of the last difference.
+     */
+    private int fromEnd;
+
+    private int toEnd;
+
+    private boolean finished;
+
+    /**
+     * Creates the encoder of the differences only, kept in memory.
+     */
+    public PatchEncoder() {
+        this(null, null, null);
+    }
+
+    /**
+     * Creates the encoder of the differences and their added elements from
+     * "to", kept in memory.
+     */
+    public PatchEncoder(List<ObjectType> to, ElementCodec<ObjectType> codec) {
+        this(null, to, codec);
+    }
+
+    /**
+     * Creates the encoder writing to the channel, with the added elements if
+     * <code>to</code> and <code>codec</code> are not null.
+     */
+    public PatchEncoder(WritableByteChannel channel, List<ObjectType> to, ElementCodec<ObjectType> codec) {
+        this.channel = channel;
+        this.to = to;
+        this.codec = to == null ? null : codec;
+        this.buffer = ByteBuffer.allocate(channel == null ? 256 : 8192);
+        this.buffer.put(MAGIC);
+        this.buffer.put((byte)(this.codec == null ? 0 : FLAG_PAYLOAD));
+        this.fromEnd = 0;
+        this.toEnd = 0;
+        this.finished = false;
+    }
+
+    /**
+     * Writes the differences.
+     */
+    public void encode(List<Difference> differences) {
+        for (Difference diff : differences) {
+            onDifference(diff.getDeletedStart(), diff.getDeletedEnd(), diff.getAddedStart(), diff.getAddedEnd());
+        }
+    }
+
+    /**
+     * Writes the difference, which must follow the last one by the same
+     * number of elements in "from" as in "to".
+     */
+    public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+        int delCount = delEnd == Difference.NONE ? 0 : delEnd - delStart + 1;
+        int addCount = addEnd == Difference.NONE ? 0 : addEnd - addStart + 1;
+        int gap = delStart - fromEnd;
+        if (finished || gap < 0 || addStart - toEnd != gap || delCount + addCount == 0) {
+            throw new IllegalArgumentException("invalid difference: " + new Difference(delStart, delEnd, addStart, addEnd) + " after " + fromEnd + ", " + toEnd);
+        }
+
+        try {
+            ensure(15);
+            putVarint(delCount);
+            putVarint(addCount);
+            putVarint(gap);
+
+            if (codec != null) {
+                for (int idx = addStart; idx < addStart + addCount; ++idx) {
+                    byte[] bytes = codec.encode(to.get(idx));
+                    ensure(5 + bytes.length);
+                    putVarint(bytes.length);
+                    buffer.put(bytes);
+                }
+            }
+        }
+        catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+
+        fromEnd = delStart + delCount;
+        toEnd = addStart + addCount;
+    }
+
+    /**
+     * Writes the end of the patch, and, with a channel, the rest of the
+     * buffer to it, which is not closed.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            ensure(2);
+            buffer.put((byte)0).put((byte)0);
+            finished = true;
+            if (channel != null) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Returns the patch, once finished, without a channel, as a buffer from
+     * its start to its end.
+     */
+    public ByteBuffer getBuffer() {
+        if (!finished || channel != null) {
+            throw new IllegalStateException("the patch is not finished, or was written to the channel");
+        }
+        ByteBuffer result = buffer.duplicate();
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Returns the patch, once finished, without a channel, as an array.
+     */
+    public byte[] toByteArray() {
+        ByteBuffer result = getBuffer();
+        byte[] bytes = new byte[result.remaining()];
+        result.get(bytes);
+        return bytes;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    /**
+     * Makes room in the buffer for the number of bytes, by writing it to the
+     * channel, or by growing it.
+     */
+    private void ensure(int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        if (channel != null) {
+            flush();
+        }
+        if (buffer.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
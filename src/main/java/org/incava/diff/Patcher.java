@@ -0,0 +1,278 @@
+package org.incava.diff;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Applies differences to the "from" collection, to get the "to" collection
+ * again, from the differences and the elements of "to", or from a patch
+ * written by <code>PatchEncoder</code> with them. The differences are applied
+ * in order, in one pass, copying the ranges between them in bulk, so the cost
+ * is in proportion to the size of the collections, not to their product with
+ * the number of differences.
+ *
+ * <p>Besides creating a new list, the differences can be applied in place to
+ * a <code>GapBuffer</code>, or to lines read from a reader and written to a
+ * writer, without either being held in memory.</p>
+ */
+public class Patcher<ObjectType> implements DiffVisitor {
+    /**
+     * Receives the elements of the result, in order.
+     */
+    public interface Output<ObjectType> {
+        public void write(ObjectType element) throws IOException;
+    }
+
+    /**
+     * An <code>IOException</code> of the output, thrown through
+     * <code>onDifference</code>, which cannot throw it, and rethrown by
+     * <code>apply</code>.
+     */
+    private static class OutputException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OutputException(IOException cause) {
+            super(cause);
+        }
+
+        public IOException getCause() {
+            return (IOException)super.getCause();
+        }
+    }
+
+    /**
+     * The "from" elements, read as the differences are applied.
+     */
+    private final Iterator<ObjectType> from;
+
+    /**
+     * The elements added by the differences, from "to", or, for a patch, only
+     * those of the current difference.
+     */
+    private final List<ObjectType> to;
+
+    /**
+     * Whether <code>to</code> holds only the added elements of the current
+     * difference, as decoded from a patch.
+     */
+    private final boolean decoded;
+
+    private final Output<ObjectType> output;
+
+    /**
+     * The position in "from" of the next element to be read.
+     */
+    private int position;
+
+    /**
+     * Creates the patcher that reads "from", and writes the result to the
+     * output, with the added elements taken from <code>to</code>, by their
+     * positions, or, if <code>decoded</code>, being those of each difference,
+     * which are then cleared.
+     */
+    public Patcher(Iterator<ObjectType> from, List<ObjectType> to, boolean decoded, Output<ObjectType> output) {
+        this.from = from;
+        this.to = to;
+        this.decoded = decoded;
+        this.output = output;
+        this.position = 0;
+    }
+
+    /**
+     * Returns the result of the differences applied to "from", with the added
+     * elements taken from "to".
+     */
+    public static <ObjectType> List<ObjectType> apply(List<ObjectType> from, List<Difference> differences, List<ObjectType> to) {
+        int size = from.size();
+        for (Difference diff : differences) {
+            size += getCount(diff.getAddedStart(), diff.getAddedEnd()) - getCount(diff.getDeletedStart(), diff.getDeletedEnd());
+        }
+
+        List<ObjectType> result = new ArrayList<ObjectType>(Math.max(0, size));
+        int fromIdx = 0;
+        for (Difference diff : differences) {
+            int delStart = diff.getDeletedStart();
+            int delCount = getCount(delStart, diff.getDeletedEnd());
+            int addStart = diff.getAddedStart();
+            checkRange(fromIdx, delStart, delCount, from.size());
+
+            result.addAll(from.subList(fromIdx, delStart));
+            result.addAll(to.subList(addStart, addStart + getCount(addStart, diff.getAddedEnd())));
+            fromIdx = delStart + delCount;
+        }
+        result.addAll(from.subList(fromIdx, from.size()));
+        return result;
+    }
+
+    /**
+     * Returns the result of the patch, which must have the added elements,
+     * applied to "from".
+     */
+    public static <ObjectType> List<ObjectType> apply(List<ObjectType> from, ByteBuffer patch, ElementCodec<ObjectType> codec) {
+        final List<ObjectType> result = new ArrayList<ObjectType>(from.size());
+        Patcher<ObjectType> patcher = new Patcher<ObjectType>(from.iterator(), new ArrayList<ObjectType>(), true, new Output<ObjectType>() {
+            public void write(ObjectType element) {
+                result.add(element);
+            }
+        });
+        try {
+            patcher.apply(new PatchDecoder<ObjectType>(patch, codec));
+        }
+        catch (IOException ioe) {
+            // the output does not throw it:
+            throw new IllegalStateException(ioe);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the differences to the document, in place, with the added
+     * elements taken from "to". Each difference moves the gap of the buffer
+     * only past the elements since the last one.
+     */
+    public static <ObjectType> void applyInPlace(GapBuffer<ObjectType> document, List<Difference> differences, List<ObjectType> to) {
+        int delta = 0;
+        int fromIdx = 0;
+        int fromSize = document.size();
+        for (Difference diff : differences) {
+            int delStart = diff.getDeletedStart();
+            int delCount = getCount(delStart, diff.getDeletedEnd());
+            int addStart = diff.getAddedStart();
+            int addCount = getCount(addStart, diff.getAddedEnd());
+            checkRange(fromIdx, delStart, delCount, fromSize);
+
+            document.replace(delStart + delta, delCount, to.subList(addStart, addStart + addCount));
+            delta += addCount - delCount;
+            fromIdx = delStart + delCount;
+        }
+    }
+
+    /**
+     * Writes the lines read from the reader, with the differences applied,
+     * with the added lines taken from "to", each followed by a newline.
+     */
+    public static void apply(BufferedReader from, List<Difference> differences, List<String> to, Writer out) throws IOException {
+        new Patcher<String>(ExternalDiff.lines(from), to, false, createOutput(out)).apply(differences);
+    }
+
+    /**
+     * Writes the lines read from the reader, with the patch applied, which
+     * has the added lines as UTF-8, each followed by a newline.
+     */
+    public static void apply(BufferedReader from, ByteBuffer patch, Writer out) throws IOException {
+        Patcher<String> patcher = new Patcher<String>(ExternalDiff.lines(from), new ArrayList<String>(), true, createOutput(out));
+        patcher.apply(new PatchDecoder<String>(patch, ElementCodec.UTF_8));
+    }
+
+    /**
+     * Applies the differences, and writes the rest of "from".
+     */
+    public void apply(List<Difference> differences) throws IOException {
+        try {
+            for (Difference diff : differences) {
+                onDifference(diff.getDeletedStart(), diff.getDeletedEnd(), diff.getAddedStart(), diff.getAddedEnd());
+            }
+        }
+        catch (OutputException oe) {
+            throw oe.getCause();
+        }
+        finish();
+    }
+
+    /**
+     * Applies the patch, and writes the rest of "from". If the added elements
+     * are decoded, the patch must have them; otherwise they are taken from
+     * "to", by their positions.
+     */
+    public void apply(PatchDecoder<ObjectType> decoder) throws IOException {
+        if (decoded && !decoder.hasPayload()) {
+            throw new IllegalArgumentException("the patch has no added elements");
+        }
+
+        try {
+            decoder.decode(this, decoded ? to : null);
+        }
+        catch (OutputException oe) {
+            throw oe.getCause();
+        }
+        finish();
+    }
+
+    /**
+     * Writes the elements of "from" up to the difference, skips those it
+     * deletes, and writes those it adds.
+     */
+    public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+        int delCount = getCount(delStart, delEnd);
+        int addCount = getCount(addStart, addEnd);
+        if (delStart < position) {
+            throw new IllegalArgumentException("difference at " + delStart + " is before " + position);
+        }
+
+        try {
+            copy(delStart - position);
+            for (int idx = 0; idx < delCount; ++idx) {
+                next();
+            }
+            position = delStart + delCount;
+
+            int start = decoded ? 0 : addStart;
+            for (int idx = start; idx < start + addCount; ++idx) {
+                output.write(to.get(idx));
+            }
+            if (decoded) {
+                to.clear();
+            }
+        }
+        catch (IOException ioe) {
+            throw new OutputException(ioe);
+        }
+    }
+
+    /**
+     * Writes the rest of "from".
+     */
+    public void finish() throws IOException {
+        while (from.hasNext()) {
+            output.write(from.next());
+            ++position;
+        }
+    }
+
+    private void copy(int count) throws IOException {
+        for (int idx = 0; idx < count; ++idx) {
+            output.write(next());
+        }
+    }
+
+    private ObjectType next() {
+        if (!from.hasNext()) {
+            throw new IllegalArgumentException("difference is past the end of \"from\"");
+        }
+        return from.next();
+    }
+
+    private static Output<String> createOutput(final Writer out) {
+        return new Output<String>() {
+            public void write(String line) throws IOException {
+                out.write(line);
+                out.write('\n');
+            }
+        };
+    }
+
+    private static int getCount(int start, int end) {
+        return end == Difference.NONE ? 0 : end - start + 1;
+    }
+
+    private static void checkRange(int fromIdx, int delStart, int delCount, int size) {
+        if (delStart < fromIdx || delStart + delCount > size) {
+            throw new IllegalArgumentException("difference at " + delStart + " is before " + fromIdx + ", or past the end of " + size);
+        }
+    }
+}
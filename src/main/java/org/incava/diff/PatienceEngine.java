@@ -0,0 +1,204 @@
+package org.incava.diff;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An engine using the patience diff of Bram Cohen. It finds the elements
+ * that occur exactly once in each range, takes the longest increasing
+ * subsequence of them as anchors, then repeats between the anchors. Ranges
+ * that are small, or that have no unique elements in common, are done with
+ * <code>LCS.addMatches</code>.
+ *
+ * <p>Only the elements of <code>from</code> are indexed, so the index is much
+ * smaller than the position lists of <code>LCS.getToMatches</code>, and each
+ * set of anchors splits the problem into smaller ones. This is best for large
+ * files with few changes, and the anchors on unique lines, usually
+ * declarations and such, often match the intent of the change better than
+ * the longest common subsequence does.</p>
+ */
+public class PatienceEngine extends AbstractDiffEngine {
+    /**
+     * The default size of a range, as the number of elements in "from" and
+     * "to", below which the LCS is used.
+     */
+    public static final int DEFAULT_SMALL_RANGE = 32;
+
+    /**
+     * The size of a range below which the LCS is used.
+     */
+    private final int smallRange;
+
+    /**
+     * Creates the engine with the default small range size.
+     */
+    public PatienceEngine() {
+        this(DEFAULT_SMALL_RANGE);
+    }
+
+    /**
+     * Creates the engine, using the LCS for ranges with fewer than
+     * <code>smallRange</code> elements.
+     */
+    public PatienceEngine(int smallRange) {
+        this.smallRange = smallRange;
+    }
+
+    public String getKey() {
+        return getClass().getName() + "(" + smallRange + ")";
+    }
+
+    public <ObjectType> boolean addMatches(List<ObjectType> from, List<ObjectType> to, Comparator<ObjectType> comp, int[] matches, int fromStart, int fromEnd, int toStart, int toEnd) {
+        LCS<ObjectType> lcs = new LCS<ObjectType>(from, to, comp);
+        boolean comparable = Elements.isComparable(comp, from);
+        boolean minimal = true;
+
+        // the ranges yet to be done, which are inclusive:
+        Deque<int[]> regions = new ArrayDeque<int[]>();
+        regions.push(new int[] { fromStart, fromEnd, toStart, toEnd });
+
+        while (!regions.isEmpty()) {
+            int[] region = regions.pop();
+            int fs = region[0];
+            int fe = region[1];
+            int ts = region[2];
+            int te = region[3];
+
+            while (fs <= fe && ts <= te && Elements.isEqual(comp, comparable, from.get(fs), to.get(ts))) {
+                matches[fs++] = ts++;
+            }
+
+            while (fs <= fe && ts <= te && Elements.isEqual(comp, comparable, from.get(fe), to.get(te))) {
+                matches[fe--] = te--;
+            }
+
+            if (fs > fe || ts > te) {
+                continue;
+            }
+
+            int[] anchors = fe - fs + te - ts + 2 < smallRange ? null : findAnchors(lcs, from, to, fs, fe, ts, te);
+            if (anchors == null) {
+                addLCSMatches(lcs, matches, fs, fe, ts, te);
+                continue;
+            }
+
+            // the anchors are not necessarily in the longest common subsequence:
+            minimal = false;
+
+            // the ranges between the anchors, last first so that they are
+            // done in order:
+            int nextFrom = fe + 1;
+            int nextTo = te + 1;
+            for (int ai = anchors.length - 2; ai >= 0; ai -= 2) {
+                int af = anchors[ai];
+                int at = anchors[ai + 1];
+                matches[af] = at;
+                regions.push(new int[] { af + 1, nextFrom - 1, at + 1, nextTo - 1 });
+                nextFrom = af;
+                nextTo = at;
+            }
+            regions.push(new int[] { fs, nextFrom - 1, ts, nextTo - 1 });
+        }
+
+        return minimal;
+    }
+
+    /**
+     * Returns the anchors, as pairs of "from" and "to" positions, of the
+     * elements that are unique in both ranges, and in the same order in both.
+     * Returns null if there are none.
+     */
+    protected <ObjectType> int[] findAnchors(LCS<ObjectType> lcs, List<ObjectType> from, List<ObjectType> to, int fs, int fe, int ts, int te) {
+        // for each element: the count in from, its position there, the count
+        // in to, and its position there.
+        Map<ObjectType, int[]> unique = lcs.createMap();
+        for (int idx = fs; idx <= fe; ++idx) {
+            ObjectType key = from.get(idx);
+            int[] entry = unique.get(key);
+            if (entry == null) {
+                unique.put(key, new int[] { 1, idx, 0, -1 });
+            }
+            else {
+                ++entry[0];
+            }
+        }
+
+        for (int idx = ts; idx <= te; ++idx) {
+            int[] entry = unique.get(to.get(idx));
+            if (entry != null) {
+                ++entry[2];
+                entry[3] = idx;
+            }
+        }
+
+        // the "to" positions of the unique common elements, in "from" order:
+        int count = 0;
+        int[] fromPositions = new int[fe - fs + 1];
+        int[] toPositions = new int[fe - fs + 1];
+        for (int idx = fs; idx <= fe; ++idx) {
+            int[] entry = unique.get(from.get(idx));
+            if (entry[0] == 1 && entry[2] == 1) {
+                fromPositions[count] = idx;
+                toPositions[count] = entry[3];
+                ++count;
+            }
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        return longestIncreasing(fromPositions, toPositions, count);
+    }
+
+    /**
+     * Returns the longest subsequence of the pairs for which the "to"
+     * positions are increasing, found by patience sorting.
+     */
+    protected int[] longestIncreasing(int[] fromPositions, int[] toPositions, int count) {
+        // the index of the top card of each pile, and the card below each card
+        // on the pile to its left:
+        int[] tops = new int[count];
+        int[] previous = new int[count];
+        int piles = 0;
+
+        for (int idx = 0; idx < count; ++idx) {
+            int value = toPositions[idx];
+            int lo = 0;
+            int hi = piles - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (toPositions[tops[mid]] < value) {
+                    lo = mid + 1;
+                }
+                else {
+                    hi = mid - 1;
+                }
+            }
+            previous[idx] = lo > 0 ? tops[lo - 1] : -1;
+            tops[lo] = idx;
+            if (lo == piles) {
+                ++piles;
+            }
+        }
+
+        int[] anchors = new int[2 * piles];
+        int idx = tops[piles - 1];
+        for (int ai = anchors.length - 2; ai >= 0; ai -= 2) {
+            anchors[ai] = fromPositions[idx];
+            anchors[ai + 1] = toPositions[idx];
+            idx = previous[idx];
+        }
+        return anchors;
+    }
+
+    /**
+     * Sets the matches for the given inclusive ranges, using the LCS.
+     */
+    protected <ObjectType> void addLCSMatches(LCS<ObjectType> lcs, int[] matches, int fs, int fe, int ts, int te) {
+        lcs.addMatches(matches, fs, fe, ts, te);
+    }
+}
@@ -0,0 +1,113 @@
+package org.incava.diff;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+
+/**
+ * Compares two ranges of arrays of a primitive type, for <code>IntDiff</code>
+ * and <code>LongDiff</code>. The ranges are viewed as lists, for
+ * <code>Differ</code>, which only uses their sizes; the values are compared,
+ * and fingerprinted for <code>DiffCache</code>, in the arrays, so none are
+ * boxed.
+ */
+abstract class PrimitiveDiff<ObjectType> extends Diff<ObjectType> {
+    /**
+     * A view of a range of an array as a list.
+     */
+    protected abstract static class RangeList<ObjectType> extends AbstractList<ObjectType> {
+        private final int offset;
+
+        private final int length;
+
+        public RangeList(int arrayLength, int offset, int length) {
+            if (offset < 0 || length < 0 || offset + length > arrayLength) {
+                throw new IndexOutOfBoundsException("offset: " + offset + "; length: " + length + "; array length: " + arrayLength);
+            }
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public ObjectType get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index: " + index + "; size: " + length);
+            }
+            return getValue(offset + index);
+        }
+
+        public int size() {
+            return length;
+        }
+
+        /**
+         * Returns the start of the range in the array.
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the value at the given position in the array.
+         */
+        protected abstract ObjectType getValue(int index);
+
+        /**
+         * Returns the values of the range as bytes, for the fingerprint of
+         * <code>DiffCache</code>.
+         */
+        public abstract ByteBuffer getBytes();
+    }
+
+    /**
+     * The view of the range of the "from" values.
+     */
+    private final RangeList<ObjectType> from;
+
+    /**
+     * The view of the range of the "to" values.
+     */
+    private final RangeList<ObjectType> to;
+
+    /**
+     * The engine that compares the values.
+     */
+    private final MatcherEngine engine;
+
+    /**
+     * Constructs the diff of the two ranges, using the given engine, which
+     * compares the values by their positions.
+     */
+    protected PrimitiveDiff(RangeList<ObjectType> from, RangeList<ObjectType> to, MatcherEngine engine) {
+        super(from, to, null, engine);
+        this.from = from;
+        this.to = to;
+        this.engine = engine;
+    }
+
+    protected Alignment getAlignment() {
+        return engine.getAlignment(getMatcher(), from.size(), to.size());
+    }
+
+    protected ElementMatcher getMatcher() {
+        final int fromOffset = from.getOffset();
+        final int toOffset = to.getOffset();
+        return new ElementMatcher() {
+            public boolean matches(int fromIdx, int toIdx) {
+                return isEqual(fromOffset + fromIdx, toOffset + toIdx);
+            }
+        };
+    }
+
+    /**
+     * Returns the key from the bytes of the ranges, so the codec of the cache
+     * is not used.
+     */
+    protected DiffCache.Key createKey(DiffCache<ObjectType> cache) {
+        return cache.createKey(getClass(), from.getBytes(), to.getBytes(), engine);
+    }
+
+    /**
+     * Returns whether the value at <code>fromIdx</code> in the "from" array
+     * is equal to the value at <code>toIdx</code> in the "to" array.
+     */
+    protected abstract boolean isEqual(int fromIdx, int toIdx);
+}
@@ -0,0 +1,64 @@
+package org.incava.diff;
+
+import java.util.List;
+
+/**
+ * The differences within a pair of changed lines, as found by
+ * <code>Refiner</code>. The points of the differences are positions of the
+ * characters of the lines, as for <code>CharDiff</code>.
+ */
+public class Refinement {
+    /**
+     * The position of the line in the "from" collection.
+     */
+    private final int fromLine;
+
+    /**
+     * The position of the line in the "to" collection.
+     */
+    private final int toLine;
+
+    /**
+     * The differences between the characters of the lines.
+     */
+    private final List<Difference> differences;
+
+    public Refinement(int fromLine, int toLine, List<Difference> differences) {
+        this.fromLine = fromLine;
+        this.toLine = toLine;
+        this.differences = differences;
+    }
+
+    public int getFromLine() {
+        return fromLine;
+    }
+
+    public int getToLine() {
+        return toLine;
+    }
+
+    public List<Difference> getDifferences() {
+        return differences;
+    }
+
+    public boolean equals(Object obj) {
+        if (obj instanceof Refinement) {
+            Refinement other = (Refinement)obj;
+            return fromLine == other.fromLine && toLine == other.toLine && differences.equals(other.differences);
+        }
+        else {
+            return false;
+        }
+    }
+
+    public int hashCode() {
+        return (fromLine * 31 + toLine) * 31 + differences.hashCode();
+    }
+
+    /**
+     * Returns a string representation of this refinement.
+     */
+    public String toString() {
+        return fromLine + " => " + toLine + ": " + differences;
+    }
+}
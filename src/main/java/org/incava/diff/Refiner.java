@@ -0,0 +1,393 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Refines the changes of a diff of lines, finding the differences within the
+ * changed lines, by words or by characters. Within each change, the deleted
+ * lines are paired in order with similar added lines, as measured by the
+ * histograms of their characters, and each pair is diffed with the
+ * bit-parallel LCS.
+ *
+ * <p>The cost of each pair is estimated as the product of the numbers of its
+ * tokens, without those common at the beginning and end, plus their numbers.
+ * A pair is refined only if its cost is within what remains of the budgets for
+ * its change and for all of the changes, so that refinement stays in
+ * proportion to the diff of the lines. Pairs that are not refined are left
+ * out, as if the lines were changed as a whole.</p>
+ *
+ * <p>The buffers are reused from one pair and change to the next, so a refiner
+ * is to be used by one thread at a time.</p>
+ */
+public class Refiner {
+    /**
+     * Diffs the lines by character.
+     */
+    public static final int CHARACTERS = 0;
+
+    /**
+     * Diffs the lines by token, which is a run of letters, digits, and
+     * underscores, a run of white space, or any other character.
+     */
+    public static final int TOKENS = 1;
+
+    /**
+     * The default budget of each change.
+     */
+    public static final long DEFAULT_MAX_HUNK_COST = 1L << 20;
+
+    /**
+     * The default budget of all changes.
+     */
+    public static final long DEFAULT_MAX_TOTAL_COST = 1L << 24;
+
+    /**
+     * The default similarity, from 0 to 1, for lines to be paired.
+     */
+    public static final double DEFAULT_MIN_SIMILARITY = 0.5;
+
+    /**
+     * The number of added lines, after the last one paired, that a deleted
+     * line is compared to.
+     */
+    protected static final int PAIR_WINDOW = 16;
+
+    /**
+     * The number of buckets of the histograms of the characters.
+     */
+    private static final int BUCKETS = 64;
+
+    private final int granularity;
+
+    private final long maxHunkCost;
+
+    private final long maxTotalCost;
+
+    private final double minSimilarity;
+
+    /**
+     * The cost of the pairs refined so far by the current call.
+     */
+    private long cost;
+
+    /**
+     * The symbols of the tokens of the current pair, with -1 for "to" tokens
+     * not in "from".
+     */
+    private int[] fromSyms = new int[0];
+
+    private int[] toSyms = new int[0];
+
+    /**
+     * The start and end, exclusive, of each token of the current pair.
+     */
+    private int[] fromStarts = new int[0];
+
+    private int[] fromEnds = new int[0];
+
+    private int[] toStarts = new int[0];
+
+    private int[] toEnds = new int[0];
+
+    private int[] matches = new int[0];
+
+    /**
+     * The histogram of the deleted line, and those of the added lines of the
+     * current change.
+     */
+    private int[] fromHist = new int[BUCKETS];
+
+    private int[] toHists = new int[0];
+
+    /**
+     * The symbol of each character, or -1, reset after each pair.
+     */
+    private int[] charSymbols;
+
+    /**
+     * The symbol of each token, cleared after each pair.
+     */
+    private final Map<String, Integer> tokenSymbols = new HashMap<String, Integer>();
+
+    /**
+     * Creates the refiner, by tokens, with the default budgets.
+     */
+    public Refiner() {
+        this(TOKENS, DEFAULT_MAX_HUNK_COST, DEFAULT_MAX_TOTAL_COST);
+    }
+
+    /**
+     * Creates the refiner, by <code>TOKENS</code> or <code>CHARACTERS</code>,
+     * with the given budgets for each change and for all of them.
+     */
+    public Refiner(int granularity, long maxHunkCost, long maxTotalCost) {
+        this(granularity, maxHunkCost, maxTotalCost, DEFAULT_MIN_SIMILARITY);
+    }
+
+    /**
+     * Creates the refiner with the given budgets, and the similarity, from 0
+     * to 1, for lines to be paired.
+     */
+    public Refiner(int granularity, long maxHunkCost, long maxTotalCost, double minSimilarity) {
+        if (granularity != CHARACTERS && granularity != TOKENS) {
+            throw new IllegalArgumentException("granularity: " + granularity);
+        }
+        this.granularity = granularity;
+        this.maxHunkCost = maxHunkCost;
+        this.maxTotalCost = maxTotalCost;
+        this.minSimilarity = minSimilarity;
+    }
+
+    /**
+     * Returns the refinements of the changes among the differences between the
+     * lines, in order.
+     */
+    public List<Refinement> refine(List<? extends CharSequence> from, List<? extends CharSequence> to, List<Difference> differences) {
+        cost = 0;
+        List<Refinement> refinements = new ArrayList<Refinement>();
+        for (Difference diff : differences) {
+            if (diff.isChange()) {
+                refineHunk(from, to, diff, refinements);
+            }
+        }
+        return refinements;
+    }
+
+    /**
+     * Returns the cost of the pairs refined by the last call to
+     * <code>refine</code>.
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    /**
+     * Pairs the lines of the change, and adds the refinements of the pairs
+     * that are within the budgets.
+     */
+    protected void refineHunk(List<? extends CharSequence> from, List<? extends CharSequence> to, Difference diff, List<Refinement> refinements) {
+        int delStart = diff.getDeletedStart();
+        int delEnd = diff.getDeletedEnd();
+        int addStart = diff.getAddedStart();
+        int addEnd = diff.getAddedEnd();
+
+        toHists = grow(toHists, (addEnd - addStart + 1) * BUCKETS);
+        for (int toLine = addStart; toLine <= addEnd; ++toLine) {
+            histogram(to.get(toLine), toHists, (toLine - addStart) * BUCKETS);
+        }
+
+        long hunkCost = 0;
+        int next = addStart;
+        for (int fromLine = delStart; fromLine <= delEnd && next <= addEnd; ++fromLine) {
+            CharSequence x = from.get(fromLine);
+            histogram(x, fromHist, 0);
+
+            int best = -1;
+            double bestScore = minSimilarity;
+            int last = Math.min(addEnd, next + PAIR_WINDOW - 1);
+            for (int toLine = next; toLine <= last; ++toLine) {
+                double score = similarity(x.length(), to.get(toLine).length(), (toLine - addStart) * BUCKETS);
+                if (best == -1 ? score >= bestScore : score > bestScore) {
+                    best = toLine;
+                    bestScore = score;
+                }
+            }
+
+            if (best == -1) {
+                continue;
+            }
+            next = best + 1;
+
+            long before = cost;
+            Refinement refinement = refinePair(fromLine, x, best, to.get(best), Math.min(maxHunkCost - hunkCost, maxTotalCost - cost));
+            if (refinement != null) {
+                refinements.add(refinement);
+                hunkCost += cost - before;
+            }
+        }
+    }
+
+    /**
+     * Returns the refinement of the pair of lines, or null if its cost is
+     * more than the budget.
+     */
+    protected Refinement refinePair(int fromLine, CharSequence x, int toLine, CharSequence y, long budget) {
+        fromStarts = grow(fromStarts, x.length());
+        fromEnds = grow(fromEnds, x.length());
+        fromSyms = grow(fromSyms, x.length());
+        toStarts = grow(toStarts, y.length());
+        toEnds = grow(toEnds, y.length());
+        toSyms = grow(toSyms, y.length());
+
+        int n = tokenize(x, fromStarts, fromEnds);
+        int m = tokenize(y, toStarts, toEnds);
+
+        int alphabetSize = 0;
+        for (int idx = 0; idx < n; ++idx) {
+            int sym = getSymbol(x, fromStarts[idx], fromEnds[idx]);
+            if (sym == -1) {
+                sym = alphabetSize++;
+                putSymbol(x, fromStarts[idx], fromEnds[idx], sym);
+            }
+            fromSyms[idx] = sym;
+        }
+        for (int idx = 0; idx < m; ++idx) {
+            toSyms[idx] = getSymbol(y, toStarts[idx], toEnds[idx]);
+        }
+        clearSymbols(x);
+
+        matches = grow(matches, n);
+        Arrays.fill(matches, 0, n, -1);
+
+        int fromStart = 0;
+        int fromEnd = n;
+        int toStart = 0;
+        int toEnd = m;
+
+        while (fromStart < fromEnd && toStart < toEnd && fromSyms[fromStart] == toSyms[toStart]) {
+            matches[fromStart++] = toStart++;
+        }
+        while (fromStart < fromEnd && toStart < toEnd && fromSyms[fromEnd - 1] == toSyms[toEnd - 1]) {
+            matches[--fromEnd] = --toEnd;
+        }
+
+        long pairCost = (long)(fromEnd - fromStart) * (toEnd - toStart) + n + m;
+        if (pairCost > budget) {
+            return null;
+        }
+        cost += pairCost;
+
+        BitParallelLCS.addMatches(fromSyms, fromStart, fromEnd, toSyms, toStart, toEnd, alphabetSize, matches);
+
+        // the gaps between the matched tokens, as positions of characters:
+        List<Difference> differences = new ArrayList<Difference>();
+        int i = 0;
+        int j = 0;
+        while (i < n || j < m) {
+            if (i < n && matches[i] == j) {
+                ++i;
+                ++j;
+                continue;
+            }
+
+            int nextI = i;
+            while (nextI < n && matches[nextI] == -1) {
+                ++nextI;
+            }
+            int nextJ = nextI < n ? matches[nextI] : m;
+
+            int delStart = i < n ? fromStarts[i] : x.length();
+            int delEnd = nextI > i ? fromEnds[nextI - 1] - 1 : Difference.NONE;
+            int addStart = j < m ? toStarts[j] : y.length();
+            int addEnd = nextJ > j ? toEnds[nextJ - 1] - 1 : Difference.NONE;
+            differences.add(new Difference(delStart, delEnd, addStart, addEnd));
+
+            i = nextI;
+            j = nextJ;
+        }
+
+        return new Refinement(fromLine, toLine, differences);
+    }
+
+    /**
+     * Sets the start and end, exclusive, of each token of the line, returning
+     * the number of tokens.
+     */
+    protected int tokenize(CharSequence line, int[] starts, int[] ends) {
+        int count = 0;
+        int idx = 0;
+        while (idx < line.length()) {
+            int start = idx;
+            char ch = line.charAt(idx++);
+            if (granularity == TOKENS) {
+                if (isWordChar(ch)) {
+                    while (idx < line.length() && isWordChar(line.charAt(idx))) {
+                        ++idx;
+                    }
+                }
+                else if (Character.isWhitespace(ch)) {
+                    while (idx < line.length() && Character.isWhitespace(line.charAt(idx))) {
+                        ++idx;
+                    }
+                }
+            }
+            starts[count] = start;
+            ends[count] = idx;
+            ++count;
+        }
+        return count;
+    }
+
+    private static boolean isWordChar(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_';
+    }
+
+    private int getSymbol(CharSequence line, int start, int end) {
+        if (granularity == CHARACTERS) {
+            return charSymbols == null ? -1 : charSymbols[line.charAt(start)];
+        }
+        else {
+            Integer sym = tokenSymbols.get(line.subSequence(start, end).toString());
+            return sym == null ? -1 : sym;
+        }
+    }
+
+    private void putSymbol(CharSequence line, int start, int end, int sym) {
+        if (granularity == CHARACTERS) {
+            if (charSymbols == null) {
+                charSymbols = new int[Character.MAX_VALUE + 1];
+                Arrays.fill(charSymbols, -1);
+            }
+            charSymbols[line.charAt(start)] = sym;
+        }
+        else {
+            tokenSymbols.put(line.subSequence(start, end).toString(), sym);
+        }
+    }
+
+    /**
+     * Resets the symbols of the "from" line, so that only its characters need
+     * be cleared, not all of them.
+     */
+    private void clearSymbols(CharSequence line) {
+        if (charSymbols != null) {
+            for (int idx = 0; idx < line.length(); ++idx) {
+                charSymbols[line.charAt(idx)] = -1;
+            }
+        }
+        tokenSymbols.clear();
+    }
+
+    /**
+     * Sets the histogram of the characters of the line at the offset.
+     */
+    private static void histogram(CharSequence line, int[] hist, int offset) {
+        Arrays.fill(hist, offset, offset + BUCKETS, 0);
+        for (int idx = 0; idx < line.length(); ++idx) {
+            ++hist[offset + (line.charAt(idx) & (BUCKETS - 1))];
+        }
+    }
+
+    /**
+     * Returns the similarity, from 0 to 1, of the deleted line and the added
+     * line whose histogram is at the offset.
+     */
+    private double similarity(int fromLength, int toLength, int offset) {
+        if (fromLength + toLength == 0) {
+            return 1.0;
+        }
+        int common = 0;
+        for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+            common += Math.min(fromHist[bucket], toHists[offset + bucket]);
+        }
+        return 2.0 * common / (fromLength + toLength);
+    }
+
+    private static int[] grow(int[] ary, int length) {
+        return ary.length >= length ? ary : new int[Math.max(length, ary.length * 2)];
+    }
+}
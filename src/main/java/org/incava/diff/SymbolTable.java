@@ -0,0 +1,226 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Numbers the elements of the collections, so that equal elements, as
+ * compared by the maps of <code>LCS</code>, have the same symbol. The symbols
+ * are dense, from zero to the number of distinct elements, so the algorithms
+ * can work on arrays of <code>int</code>, and compare the elements, with the
+ * comparator or otherwise, only once each.
+ *
+ * <p>With an executor, a large range is numbered in chunks in parallel, each
+ * chunk with its own map, and the symbols of the chunks are then merged into
+ * those of the table. Only the merge, which is proportional to the number of
+ * distinct elements in each chunk, is done serially.</p>
+ */
+public class SymbolTable<ObjectType> {
+    /**
+     * The default number of elements in each chunk numbered in parallel.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 15;
+
+    /**
+     * The LCS that creates the maps.
+     */
+    private final LCS<ObjectType> lcs;
+
+    /**
+     * The symbol of each element.
+     */
+    private final Map<ObjectType, Integer> symbols;
+
+    /**
+     * The executor for numbering chunks in parallel, or null.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of elements in each chunk numbered in parallel.
+     */
+    private final int chunkSize;
+
+    /**
+     * Creates the table, with the maps of the given LCS, numbering the
+     * elements serially.
+     */
+    public SymbolTable(LCS<ObjectType> lcs) {
+        this(lcs, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates the table, with the maps of the given LCS, numbering ranges of
+     * more than <code>chunkSize</code> elements in parallel with the given
+     * executor, if it is not null.
+     */
+    public SymbolTable(LCS<ObjectType> lcs, ExecutorService executor, int chunkSize) {
+        this.lcs = lcs;
+        this.symbols = lcs.createMap();
+        this.executor = executor;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Returns the number of symbols, that is, of distinct elements.
+     */
+    public int size() {
+        return symbols.size();
+    }
+
+    /**
+     * Returns the symbol of the element, adding it to the table if it is new.
+     */
+    public int intern(ObjectType element) {
+        Integer sym = symbols.get(element);
+        if (sym == null) {
+            sym = symbols.size();
+            symbols.put(element, sym);
+        }
+        return sym;
+    }
+
+    /**
+     * Returns the symbol of the element, or -1 if it is not in the table.
+     */
+    public int lookup(ObjectType element) {
+        Integer sym = symbols.get(element);
+        return sym == null ? -1 : sym;
+    }
+
+    /**
+     * Returns the symbols of the elements from <code>start</code> to
+     * <code>end</code>, exclusive, adding the new ones to the table.
+     */
+    public int[] intern(List<ObjectType> elements, int start, int end) {
+        int[] syms = new int[end - start];
+        intern(elements, start, end, syms);
+        return syms;
+    }
+
+    /**
+     * Sets in <code>syms</code>, from zero, the symbols of the elements from
+     * <code>start</code> to <code>end</code>, exclusive, adding the new ones
+     * to the table.
+     */
+    public void intern(List<ObjectType> elements, int start, int end, int[] syms) {
+        if (executor == null || end - start <= chunkSize) {
+            for (int idx = start; idx < end; ++idx) {
+                syms[idx - start] = intern(elements.get(idx));
+            }
+            return;
+        }
+
+        // each chunk numbers its elements in its own map, from zero:
+        List<Future<List<ObjectType>>> futures = new ArrayList<Future<List<ObjectType>>>();
+        for (int chunkStart = start; chunkStart < end; chunkStart += chunkSize) {
+            futures.add(executor.submit(new ChunkInterner(elements, chunkStart, Math.min(end, chunkStart + chunkSize), syms, start)));
+        }
+
+        // then the chunk symbols are replaced with those of the table, in
+        // order, so that the symbols are the same as when done serially:
+        int chunkStart = start;
+        for (Future<List<ObjectType>> future : futures) {
+            List<ObjectType> distinct = Tasks.getResult(future);
+            int[] remap = new int[distinct.size()];
+            for (int sym = 0; sym < remap.length; ++sym) {
+                remap[sym] = intern(distinct.get(sym));
+            }
+
+            int chunkEnd = Math.min(end, chunkStart + chunkSize);
+            for (int idx = chunkStart - start; idx < chunkEnd - start; ++idx) {
+                syms[idx] = remap[syms[idx]];
+            }
+            chunkStart = chunkEnd;
+        }
+    }
+
+    /**
+     * Returns the symbols of the elements from <code>start</code> to
+     * <code>end</code>, exclusive, with -1 for those not in the table, which
+     * is unchanged.
+     */
+    public int[] lookup(List<ObjectType> elements, int start, int end) {
+        int[] syms = new int[end - start];
+        lookup(elements, start, end, syms);
+        return syms;
+    }
+
+    /**
+     * Sets in <code>syms</code>, from zero, the symbols of the elements from
+     * <code>start</code> to <code>end</code>, exclusive, with -1 for those not
+     * in the table, which is unchanged.
+     */
+    public void lookup(final List<ObjectType> elements, final int start, int end, final int[] syms) {
+        if (executor == null || end - start <= chunkSize) {
+            for (int idx = start; idx < end; ++idx) {
+                syms[idx - start] = lookup(elements.get(idx));
+            }
+            return;
+        }
+
+        // the table is only read, so the chunks can share it:
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int chunkStart = start; chunkStart < end; chunkStart += chunkSize) {
+            final int from = chunkStart;
+            final int to = Math.min(end, chunkStart + chunkSize);
+            futures.add(executor.submit(new Callable<Object>() {
+                public Object call() {
+                    for (int idx = from; idx < to; ++idx) {
+                        syms[idx - start] = lookup(elements.get(idx));
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        for (Future<Object> future : futures) {
+            Tasks.getResult(future);
+        }
+    }
+
+    /**
+     * Numbers a chunk of the elements in its own map, setting the chunk
+     * symbols in the array, and returning the distinct elements in the order
+     * of their symbols.
+     */
+    protected class ChunkInterner implements Callable<List<ObjectType>> {
+        private final List<ObjectType> elements;
+
+        private final int start;
+
+        private final int end;
+
+        private final int[] syms;
+
+        private final int offset;
+
+        public ChunkInterner(List<ObjectType> elements, int start, int end, int[] syms, int offset) {
+            this.elements = elements;
+            this.start = start;
+            this.end = end;
+            this.syms = syms;
+            this.offset = offset;
+        }
+
+        public List<ObjectType> call() {
+            Map<ObjectType, Integer> chunkSymbols = lcs.createMap();
+            List<ObjectType> distinct = new ArrayList<ObjectType>();
+            for (int idx = start; idx < end; ++idx) {
+                ObjectType element = elements.get(idx);
+                Integer sym = chunkSymbols.get(element);
+                if (sym == null) {
+                    sym = distinct.size();
+                    chunkSymbols.put(element, sym);
+                    distinct.add(element);
+                }
+                syms[idx - offset] = sym;
+            }
+            return distinct;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.incava.diff;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers for the tasks run on an executor, such as by
+ * <code>SymbolTable</code> and <code>DiffBatch</code>.
+ */
+public class Tasks {
+    /**
+     * Returns the result of the task, rethrowing its exception, if any. If the
+     * thread is interrupted while waiting, its interrupt status is set again,
+     * and a <code>RuntimeException</code> is thrown.
+     */
+    public static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting for a task", ie);
+        }
+        catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+}
@@ -1,105 +1,135 @@
 package org.incava.diff;
 
-import java.util.TreeMap;
+import java.util.Arrays;
 
 /**
- * The map of thresholds as used in the Diff/LCS code.
+ * The thresholds as used in the Diff/LCS code. The threshold at index k is
+ * the smallest position in "to" that ends a common subsequence of length k +
+ * 1, so the thresholds are increasing, and are kept in a growable array.
  */
-public class Thresholds extends TreeMap<Integer, Integer> {
-    public static final long serialVersionUID = 1;
+public class Thresholds {
+    /**
+     * The thresholds, of which the first <code>size</code> are used.
+     */
+    private int[] values;
 
     /**
-     * Returns whether the integer is not zero (including if it is not null).
+     * The number of thresholds.
      */
-    protected static boolean isNonzero(Integer i) {
-        return i != null && i.intValue() != 0;
+    private int size;
+
+    /**
+     * Creates the thresholds, with none set.
+     */
+    public Thresholds() {
+        this(16);
     }
 
     /**
-     * Returns whether the value in the map for the given index is greater than
-     * the given value.
+     * Creates the thresholds, with none set, and room for the given number
+     * before growing.
      */
-    protected boolean isGreaterThan(Integer index, Integer val) {
-        Integer lhs = get(index);
-        return lhs != null && val != null && lhs.compareTo(val) > 0;
+    public Thresholds(int capacity) {
+        this.values = new int[Math.max(1, capacity)];
+        this.size = 0;
     }
 
     /**
-     * Returns whether the value in the map for the given index is less than
-     * the given value.
+     * Returns the number of thresholds, which is the length of the longest
+     * common subsequence so far.
      */
-    protected boolean isLessThan(Integer index, Integer val) {
-        Integer lhs = get(index);
-        return lhs != null && (val == null || lhs.compareTo(val) < 0);
+    public int size() {
+        return size;
     }
 
     /**
-     * Returns the value for the greatest key in the map.
+     * Returns whether there are no thresholds.
      */
-    protected Integer getLastValue() {
-        return get(lastKey());
+    public boolean isEmpty() {
+        return size == 0;
     }
 
     /**
-     * Adds the given value to the "end" of the threshold map, that is, with the
-     * greatest index/key.
+     * Returns the number of thresholds that can be set before growing.
      */
-    protected void append(Integer value) {
-        Integer addIdx = null;
-        if (isEmpty()) {
-            addIdx = 0;
-        }
-        else {
-            Integer lastKey = lastKey();
-            addIdx = lastKey.intValue() + 1;
-        }
-        put(addIdx, value);
+    public int capacity() {
+        return values.length;
     }
 
     /**
-     * Inserts the given values into the threshold map.
+     * Removes all of the thresholds, keeping the array for reuse.
      */
-    public Integer insert(Integer j, Integer k) {
-        if (isNonzero(k) && isGreaterThan(k, j) && isLessThan(k.intValue() - 1, j)) {
-            put(k, j);
-            return k;
-        }
-        
-        int hi = -1;
-            
-        if (isNonzero(k)) {
-            hi = k.intValue();
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the threshold at the given index.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + "; size: " + size);
         }
-        else if (!isEmpty()) {
-            hi = lastKey();
+        return values[index];
+    }
+
+    /**
+     * Adds the given value to the end of the thresholds.
+     */
+    protected void append(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * size);
         }
+        values[size++] = value;
+    }
 
+    /**
+     * Inserts the position <code>j</code>, replacing the lowest threshold
+     * greater than it, or appending it if there is none, and returns the index
+     * at which it was inserted. Returns -1 if <code>j</code> is already a
+     * threshold.
+     *
+     * <p>For a given position in "from", the positions in "to" are inserted in
+     * decreasing order, so the index returned for one is an upper bound for
+     * the next. Passing it as <code>k</code> (or -1 for none) limits the
+     * search to the thresholds below it, which are searched by galloping down
+     * from <code>k</code>, then by binary search.</p>
+     */
+    public int insert(int j, int k) {
         // off the end?
-        if (hi == -1 || j.compareTo(getLastValue()) > 0) {
+        if (size == 0 || j > values[size - 1]) {
             append(j);
-            return hi + 1;
+            return size - 1;
         }
-        
+
+        // values[hi] is at least j, and values[lo] is less than j, if lo is
+        // not -1:
+        int hi = k >= 0 && k < size && values[k] >= j ? k : size - 1;
+        int lo = hi - 1;
+        int step = 1;
+        while (lo >= 0 && values[lo] >= j) {
+            hi = lo;
+            step <<= 1;
+            lo = hi - step;
+        }
+        lo = Math.max(lo, -1);
+
         // binary search for insertion point:
-        int lo = 0;
-        
-        while (lo <= hi) {
-            int     index = (hi + lo) / 2;
-            Integer val   = get(index);
-            int     cmp   = j.compareTo(val);
-
-            if (cmp == 0) {
-                return null;
-            }
-            else if (cmp > 0) {
-                lo = index + 1;
+        while (lo + 1 < hi) {
+            int index = (lo + hi) >>> 1;
+            if (values[index] >= j) {
+                hi = index;
             }
             else {
-                hi = index - 1;
+                lo = index;
             }
         }
-        
-        put(lo, j);
-        return lo;
+
+        if (values[hi] == j) {
+            return -1;
+        }
+
+        values[hi] = j;
+        return hi;
     }
 }
@@ -1,6 +1,9 @@
 package org.incava.diff;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import junit.framework.TestCase;
 
 import static org.incava.diff.Util.list;
@@ -202,6 +205,108 @@ public class DifferTest extends TestCase {
         assertDifferences(a, b, expected);
     }
 
+    public void testMaxDistanceWithin() {
+        //                    del            add       chg       add       chg..........
+        List<String> a = list("a", "b", "c",      "e", "h", "j",      "l", "m", "n", "p");
+        List<String> b = list(     "b", "c", "d", "e", "f", "j", "k", "l", "m", "r", "s", "t");
+
+        List<Difference> expected = new Diff<String>(a, b).execute();
+        // 1 + 1 + 2 + 1 + 5 elements deleted and added:
+        assertEquals(expected, new Diff<String>(a, b).execute(10));
+        assertEquals(expected, new Diff<String>(a, b).execute(100));
+    }
+
+    public void testMaxDistanceExceeded() {
+        List<String> a = list("a", "b", "c",      "e", "h", "j",      "l", "m", "n", "p");
+        List<String> b = list(     "b", "c", "d", "e", "f", "j", "k", "l", "m", "r", "s", "t");
+
+        assertNull(new Diff<String>(a, b).execute(9));
+    }
+
+    public void testMaxDistanceSizes() {
+        List<String> a = list("a", "b", "c", "d", "e");
+        List<String> b = list("a", "e");
+
+        assertNull(new Diff<String>(a, b).execute(2));
+        assertEquals(1, new Diff<String>(a, b).execute(3).size());
+    }
+
+    public void testMaxDistanceSame() {
+        List<String> a = list("a", "b", "c");
+
+        assertEquals(0, new Diff<String>(a, a).execute(0).size());
+    }
+
+    public void testMaxDistanceNegative() {
+        List<String> a = list("a", "b", "c");
+
+        try {
+            new Diff<String>(a, a).execute(-1);
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+    }
+
+    public void testVisitor() {
+        List<String> a = list("a", "b", "c",      "e", "h", "j",      "l", "m", "n", "p");
+        List<String> b = list(     "b", "c", "d", "e", "f", "j", "k", "l", "m", "r", "s", "t");
+
+        final List<Difference> visited = new ArrayList<Difference>();
+        new Diff<String>(a, b).execute(new DiffVisitor() {
+            public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+                visited.add(new Difference(delStart, delEnd, addStart, addEnd));
+            }
+        });
+
+        assertEquals(new Diff<String>(a, b).execute(), visited);
+    }
+
+    public void testVisitorSame() {
+        List<String> a = list("a", "b", "c");
+
+        final int[] count = new int[1];
+        new Diff<String>(a, a).execute(new DiffVisitor() {
+            public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+                ++count[0];
+            }
+        });
+
+        assertEquals(0, count[0]);
+    }
+
+    public void testIteratorStopsEarly() {
+        List<String> a = list("a", "b", "c",      "e", "h", "j",      "l", "m", "n", "p");
+        List<String> b = list(     "b", "c", "d", "e", "f", "j", "k", "l", "m", "r", "s", "t");
+
+        final int[] created = new int[1];
+        Diff<String> diff = new Diff<String>(a, b) {
+            public Difference createDifference(Integer delStart, Integer delEnd, Integer addStart, Integer addEnd) {
+                ++created[0];
+                return super.createDifference(delStart, delEnd, addStart, addEnd);
+            }
+        };
+
+        Iterator<Difference> it = diff.iterator();
+        assertTrue(it.hasNext());
+        assertEquals(new Difference(0, 0, 0, Difference.NONE), it.next());
+        assertTrue(it.hasNext());
+        assertEquals(2, created[0]);
+    }
+
+    public void testIteratorSame() {
+        List<String> a = list("a", "b", "c");
+
+        Iterator<Difference> it = new Diff<String>(a, a).iterator();
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail("expected NoSuchElementException");
+        }
+        catch (NoSuchElementException nsee) {
+        }
+    }
+
     protected <T> List<Difference> assertDifferences(List<T> a, List<T> b, Difference[] expected) {
         Diff<T> diff = new Diff<T>(a, b) {
             public Difference createDifference(Integer delStart, Integer delEnd, Integer addStart, Integer addEnd) {
@@ -0,0 +1,145 @@
+package org.incava.diff;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * The tests of the diffs of primitive arrays, which subclasses run with
+ * their own type, from the values given here as <code>long</code>.
+ */
+public abstract class PrimitiveDiffTestCase<ObjectType> extends TestCase {
+    /**
+     * The random values are multiples of this, so that equal values are not
+     * the same boxed object.
+     */
+    private final long scale;
+
+    public PrimitiveDiffTestCase(String name, long scale) {
+        super(name);
+        this.scale = scale;
+    }
+
+    /**
+     * Returns the diff of the two arrays.
+     */
+    protected abstract Diff<ObjectType> createDiff(long[] from, long[] to);
+
+    /**
+     * Returns the diff of the two ranges of arrays, with the default engine.
+     */
+    protected abstract Diff<ObjectType> createDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength);
+
+    /**
+     * Returns the diff of the two ranges of arrays, with the given engine.
+     */
+    protected abstract Diff<ObjectType> createDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength, MatcherEngine engine);
+
+    /**
+     * Returns the values as a list of the boxed type.
+     */
+    protected abstract List<ObjectType> toList(long[] values);
+
+    public void assertDifferences(List<Difference> differences, Difference ... expected) {
+        assertEquals("differences: " + differences, expected.length, differences.size());
+        for (int ei = 0; ei < expected.length; ++ei) {
+            assertEquals("expected[" + ei +"]", expected[ei], differences.get(ei));
+        }
+    }
+
+    public long[] random(Random random) {
+        long[] values = new long[random.nextInt(60)];
+        for (int idx = 0; idx < values.length; ++idx) {
+            values[idx] = random.nextInt(6) * scale;
+        }
+        return values;
+    }
+
+    public void testSame() {
+        assertDifferences(createDiff(new long[] { 1, 2, 3 }, new long[] { 1, 2, 3 }).execute());
+    }
+
+    public void testAddAndDelete() {
+        assertDifferences(createDiff(new long[] { 1, 2, 3, 4, 5, 6 }, new long[] { 9, 1, 2, 4, 5, 6, 7 }).execute(),
+                          new Difference(0, Difference.NONE, 0, 0),
+                          new Difference(2, 2, 3, Difference.NONE),
+                          new Difference(6, Difference.NONE, 6, 6));
+    }
+
+    public void testFromNone() {
+        assertDifferences(createDiff(new long[0], new long[] { 1, 2 }).execute(),
+                          new Difference(0, Difference.NONE, 0, 1));
+    }
+
+    public void testToNone() {
+        assertDifferences(createDiff(new long[] { 1, 2 }, new long[0]).execute(),
+                          new Difference(0, 1, 0, Difference.NONE));
+    }
+
+    public void testRanges() {
+        long[] from = new long[] { 7, 7, 1, 2, 3, 7 };
+        long[] to = new long[] { 8, 1, 4, 3, 8, 8 };
+        assertDifferences(createDiff(from, 2, 3, to, 1, 3).execute(),
+                          new Difference(1, 1, 1, 1));
+    }
+
+    public void testInvalidRange() {
+        try {
+            createDiff(new long[3], 2, 2, new long[3], 0, 3);
+            fail("expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ioobe) {
+        }
+    }
+
+    public void testSameAsDiff() {
+        Random random = new Random(8);
+        for (int count = 0; count < 100; ++count) {
+            long[] from = random(random);
+            long[] to = random(random);
+
+            List<Difference> expected = new Diff<ObjectType>(toList(from), toList(to), null, new LinearSpaceEngine()).execute();
+            assertEquals(expected, createDiff(from, to).execute());
+
+            expected = new Diff<ObjectType>(toList(from), toList(to), null, new MyersEngine()).execute();
+            assertEquals(expected, createDiff(from, 0, from.length, to, 0, to.length, new MyersEngine()).execute());
+        }
+    }
+
+    public void testMaxDistance() {
+        Random random = new Random(9);
+        for (int count = 0; count < 100; ++count) {
+            long[] from = random(random);
+            long[] to = random(random);
+
+            int maxDistance = random.nextInt(80);
+            List<Difference> expected = new Diff<ObjectType>(toList(from), toList(to)).execute(maxDistance);
+            assertEquals(expected, createDiff(from, to).execute(maxDistance));
+        }
+    }
+
+    public void testCache() {
+        // the values are fingerprinted from the arrays, not by the codec:
+        DiffCache<ObjectType> cache = new DiffCache<ObjectType>(new ElementCodec<ObjectType>() {
+            public byte[] encode(ObjectType element) {
+                throw new UnsupportedOperationException("encode");
+            }
+
+            public ObjectType decode(ByteBuffer buffer, int length) {
+                throw new UnsupportedOperationException("decode");
+            }
+        });
+
+        long[] from = new long[] { 7, 7, 1, 2, 3, 7 };
+        long[] to = new long[] { 8, 1, 4, 3, 8, 8 };
+        List<Difference> expected = createDiff(from, to).execute();
+        assertEquals(expected, createDiff(from, to).execute(cache));
+        assertEquals(expected, createDiff(from, to).execute(cache));
+        assertEquals(1, cache.getHits());
+
+        // another range of the same arrays is another key:
+        assertEquals(createDiff(from, 2, 3, to, 1, 3).execute(), createDiff(from, 2, 3, to, 1, 3).execute(cache));
+        assertEquals(1, cache.getHits());
+    }
+}
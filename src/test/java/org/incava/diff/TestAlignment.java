@@ -0,0 +1,70 @@
+package org.incava.diff;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public class TestAlignment extends TestCase {
+    public TestAlignment(String name) {
+        super(name);
+    }
+
+    public void testRuns() {
+        Alignment alignment = new Alignment(new int[] { 0, 1, -1, 3, 4, 6, -1, -1 }, true);
+        assertEquals(3, alignment.getRunCount());
+        assertEquals(0, alignment.getFromStart(0));
+        assertEquals(0, alignment.getToStart(0));
+        assertEquals(2, alignment.getLength(0));
+        assertEquals(3, alignment.getFromStart(1));
+        assertEquals(3, alignment.getToStart(1));
+        assertEquals(2, alignment.getLength(1));
+        assertEquals(5, alignment.getFromStart(2));
+        assertEquals(6, alignment.getToStart(2));
+        assertEquals(1, alignment.getLength(2));
+        assertEquals(6, alignment.size());
+    }
+
+    public void testGetMatch() {
+        int[] matches = new int[] { -1, 2, 3, 4, -1, 7, 9, -1 };
+        Alignment alignment = new Alignment(matches, true);
+        for (int idx = 0; idx < matches.length; ++idx) {
+            assertEquals("idx: " + idx, matches[idx], alignment.getMatch(idx));
+        }
+        assertEquals(-1, alignment.getMatch(-1));
+        assertEquals(-1, alignment.getMatch(100));
+    }
+
+    public void testSame() {
+        int[] matches = new int[10000];
+        for (int idx = 0; idx < matches.length; ++idx) {
+            matches[idx] = idx;
+        }
+        Alignment alignment = new Alignment(matches, true);
+        assertEquals(1, alignment.getRunCount());
+        assertEquals(10000, alignment.size());
+        assertEquals(1234, alignment.getMatch(1234));
+    }
+
+    public void testNone() {
+        Alignment alignment = new Alignment(new int[] { -1, -1 }, false);
+        assertEquals(0, alignment.getRunCount());
+        assertEquals(0, alignment.size());
+        assertEquals(-1, alignment.getMatch(0));
+        assertFalse(alignment.isMinimal());
+        assertTrue(alignment.toList().isEmpty());
+    }
+
+    public void testToList() {
+        Integer[] expected = new Integer[] { null, 0, 1, null, 4 };
+        Alignment alignment = new Alignment(Arrays.asList(expected), true);
+        assertEquals(Arrays.asList(expected), alignment.toList());
+    }
+
+    public void testFromRuns() {
+        Alignment alignment = new Alignment(new int[] { 2, 10, 99 }, new int[] { 0, 5, 99 }, new int[] { 3, 1, 99 }, 2, true);
+        assertEquals(2, alignment.getRunCount());
+        assertEquals(11, alignment.size());
+        assertEquals(1, alignment.getMatch(3));
+        assertEquals(-1, alignment.getMatch(5));
+        assertEquals(5, alignment.getMatch(10));
+    }
+}
@@ -0,0 +1,14 @@
+package org.incava.diff;
+
+/**
+ * Runs the <code>Diff</code> tests with the bit-parallel engine.
+ */
+public class TestBitParallelEngine extends TestDiff {
+    public TestBitParallelEngine(String name) {
+        super(name);
+    }
+
+    protected DiffEngine getEngine() {
+        return new BitParallelEngine();
+    }
+}
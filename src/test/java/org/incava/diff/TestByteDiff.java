@@ -0,0 +1,98 @@
+package org.incava.diff;
+
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class TestByteDiff extends TestCase {
+    public TestByteDiff(String name) {
+        super(name);
+    }
+
+    public byte[] bytes(int ... values) {
+        byte[] bytes = new byte[values.length];
+        for (int idx = 0; idx < values.length; ++idx) {
+            bytes[idx] = (byte)values[idx];
+        }
+        return bytes;
+    }
+
+    public void testSame() {
+        List<Difference> differences = new ByteDiff(bytes(1, 2, 3), bytes(1, 2, 3)).execute();
+        assertEquals(0, differences.size());
+    }
+
+    public void testHighBytes() {
+        List<Difference> differences = new ByteDiff(bytes(0x00, 0xff, 0x80, 0x7f), bytes(0x00, 0x80, 0x7f, 0xfe)).execute();
+        assertEquals(2, differences.size());
+        assertEquals(new Difference(1, 1, 1, Difference.NONE), differences.get(0));
+        assertEquals(new Difference(4, Difference.NONE, 3, 3), differences.get(1));
+    }
+
+    public void testAgainstLCS() {
+        byte[] from = new byte[200];
+        byte[] to = new byte[150];
+        for (int idx = 0; idx < from.length; ++idx) {
+            from[idx] = (byte)((idx * 31) % 7);
+        }
+        for (int idx = 0; idx < to.length; ++idx) {
+            to[idx] = (byte)((idx * 17) % 5);
+        }
+
+        Byte[] fromBoxed = new Byte[from.length];
+        for (int idx = 0; idx < from.length; ++idx) {
+            fromBoxed[idx] = from[idx];
+        }
+        Byte[] toBoxed = new Byte[to.length];
+        for (int idx = 0; idx < to.length; ++idx) {
+            toBoxed[idx] = to[idx];
+        }
+
+        int expected = 0;
+        for (Integer match : new LCS<Byte>(fromBoxed, toBoxed).getMatches()) {
+            expected += match == null ? 0 : 1;
+        }
+
+        int count = 0;
+        for (int match : new BitParallelLCS(from, to).getMatchArray()) {
+            count += match == -1 ? 0 : 1;
+        }
+
+        assertEquals(expected, count);
+    }
+
+    public void testLarge() {
+        // the rows of the whole table would be 100000 * 1563 words:
+        Random random = new Random(5);
+        byte[] from = new byte[100000];
+        random.nextBytes(from);
+        byte[] to = from.clone();
+        for (int idx = 500; idx < to.length; idx += 1000) {
+            ++to[idx];
+        }
+
+        int deleted = 0;
+        int added = 0;
+        for (Difference diff : new ByteDiff(from, to).execute()) {
+            if (diff.getDeletedEnd() != Difference.NONE) {
+                deleted += diff.getDeletedEnd() - diff.getDeletedStart() + 1;
+            }
+            if (diff.getAddedEnd() != Difference.NONE) {
+                added += diff.getAddedEnd() - diff.getAddedStart() + 1;
+            }
+        }
+        assertEquals(100, deleted);
+        assertEquals(100, added);
+
+        random.nextBytes(to);
+        int[] matches = new BitParallelLCS(from, to).getMatchArray();
+        int prev = -1;
+        for (int idx = 0; idx < matches.length; ++idx) {
+            if (matches[idx] != -1) {
+                assertTrue(matches[idx] > prev);
+                assertEquals(from[idx], to[matches[idx]]);
+                prev = matches[idx];
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class TestCharDiff extends TestCase {
+    public TestCharDiff(String name) {
+        super(name);
+    }
+
+    public void assertDifferences(List<Difference> differences, Difference ... expected) {
+        assertEquals("differences: " + differences, expected.length, differences.size());
+        for (int ei = 0; ei < expected.length; ++ei) {
+            assertEquals("expected[" + ei +"]", expected[ei], differences.get(ei));
+        }
+    }
+
+    public List<Character> chars(String str) {
+        List<Character> list = new ArrayList<Character>();
+        for (char ch : str.toCharArray()) {
+            list.add(ch);
+        }
+        return list;
+    }
+
+    public int countMatches(List<Integer> matches) {
+        int count = 0;
+        for (Integer match : matches) {
+            if (match != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public void testSame() {
+        assertDifferences(new CharDiff("abc", "abc").execute());
+    }
+
+    public void testChange() {
+        assertDifferences(new CharDiff("the cat sat", "the bat sat").execute(),
+                          new Difference(4, 4, 4, 4));
+    }
+
+    public void testAddAndDelete() {
+        assertDifferences(new CharDiff("abcdef".toCharArray(), "xabdefy".toCharArray()).execute(),
+                          new Difference(0, Difference.NONE, 0, 0),
+                          new Difference(2, 2, 3, Difference.NONE),
+                          new Difference(6, Difference.NONE, 6, 6));
+    }
+
+    public void testFromNone() {
+        assertDifferences(new CharDiff("", "ab").execute(),
+                          new Difference(0, Difference.NONE, 0, 1));
+    }
+
+    public void testToNone() {
+        assertDifferences(new CharDiff("ab", "").execute(),
+                          new Difference(0, 1, 0, Difference.NONE));
+    }
+
+    public void testMultipleWords() {
+        // long enough that the bit vectors span several words, with carries
+        // between them:
+        StringBuilder from = new StringBuilder();
+        StringBuilder to = new StringBuilder();
+        for (int idx = 0; idx < 300; ++idx) {
+            from.append((char)('a' + (idx * 7) % 5));
+            to.append((char)('a' + (idx * 3) % 4));
+        }
+
+        List<Integer> expected = new LCS<Character>(chars(from.toString()), chars(to.toString())).getMatches();
+        List<Integer> matches = new BitParallelLCS(from, to).getMatches();
+        assertEquals(countMatches(expected), countMatches(matches));
+
+        int last = -1;
+        for (int idx = 0; idx < matches.size(); ++idx) {
+            Integer match = matches.get(idx);
+            if (match != null) {
+                assertTrue("match: " + match + " after " + last, match > last);
+                assertEquals(from.charAt(idx), to.charAt(match));
+                last = match;
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.incava.diff;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
@@ -12,6 +13,14 @@ public class TestDiff extends TestCase {
         super(name);
     }
 
+    /**
+     * Returns the engine used for the diffs. Subclasses override this to run
+     * the same tests against another engine.
+     */
+    protected DiffEngine getEngine() {
+        return new LCSEngine();
+    }
+
     public Difference newDiff(Integer delStart, Integer delEnd, Integer addStart, Integer addEnd) {
         return new Difference(delStart, delEnd, addStart, addEnd);
     }
@@ -144,7 +153,7 @@ public class TestDiff extends TestCase {
 
         Comparator<NoncomparableObject> comparator = new NoncomparableObject.NoncomparableObjectComparator();
         
-        runDiff(new Diff<NoncomparableObject>(a, b, comparator), expected);
+        runDiff(new Diff<NoncomparableObject>(a, b, comparator, getEngine()), expected);
     }
 
     public ComparableObject newCmpObj(String s) {
@@ -178,7 +187,21 @@ public class TestDiff extends TestCase {
 
         runDiff(a, b, expected);
     }
-    
+
+    public void testMixedTypes() {
+        // the first element is not Comparable, so none are compared by
+        // compareTo, and "s" is not compared to 5:
+        Object obj = new Object();
+        Object[] a = new Object[] { obj, "s" };
+        Object[] b = new Object[] { obj, 5 };
+
+        Difference[] expected = new Difference[] {
+            newDiff(1,  1,  1,  1),
+        };
+
+        runDiff(a, b, expected);
+    }
+
     public void testLongArray() {
         Object[] a = new Object[] {
             "a",
@@ -977,9 +1000,10 @@ public class TestDiff extends TestCase {
     }
     
     protected void runDiff(Object[] a, Object[] b, Difference[] expected) {
-        Diff<Object> diff = new Diff<Object>(a, b);
+        Diff<Object> diff = new Diff<Object>(a, b, null, getEngine());
         List<Difference> differences = diff.execute();
         assertDifferences(differences, expected);
+        assertDifferences(iterate(new Diff<Object>(a, b, null, getEngine())), expected);
     }
 
     @SuppressWarnings("deprecation")
@@ -990,8 +1014,17 @@ public class TestDiff extends TestCase {
     }
     
     protected <T> void runDiff(List<T> a, List<T> b, Difference[] expected) {
-        Diff<T> diff = new Diff<T>(a, b);
+        Diff<T> diff = new Diff<T>(a, b, null, getEngine());
         List<Difference> differences = diff.execute();
         assertDifferences(differences, expected);
+        assertDifferences(iterate(new Diff<T>(a, b, null, getEngine())), expected);
+    }
+
+    protected <T> List<Difference> iterate(Diff<T> diff) {
+        List<Difference> differences = new ArrayList<Difference>();
+        for (Difference difference : diff) {
+            differences.add(difference);
+        }
+        return differences;
     }
 }
@@ -0,0 +1,177 @@
+package org.incava.diff;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+public class TestDiff3 extends TestCase {
+    public TestDiff3(String name) {
+        super(name);
+    }
+
+    public List<MergeRegion> merge(String[] base, String[] ours, String[] theirs) {
+        return new Diff3<String>(base, ours, theirs).execute();
+    }
+
+    public MergeRegion region(int type, int bs, int be, int os, int oe, int ts, int te) {
+        return new MergeRegion(type, bs, be, os, oe, ts, te);
+    }
+
+    public void testSame() {
+        String[] a = new String[] { "a", "b", "c" };
+        assertEquals(Arrays.asList(region(MergeRegion.STABLE, 0, 3, 0, 3, 0, 3)), merge(a, a, a));
+    }
+
+    public void testEmpty() {
+        String[] a = new String[0];
+        assertEquals(new ArrayList<MergeRegion>(), merge(a, a, a));
+    }
+
+    public void testClean() {
+        List<MergeRegion> expected = Arrays.asList(region(MergeRegion.STABLE, 0, 1, 0, 1, 0, 1),
+                                                   region(MergeRegion.OURS,   1, 2, 1, 2, 1, 2),
+                                                   region(MergeRegion.STABLE, 2, 3, 2, 3, 2, 3),
+                                                   region(MergeRegion.THEIRS, 3, 4, 3, 4, 3, 4),
+                                                   region(MergeRegion.STABLE, 4, 5, 4, 5, 4, 5));
+        assertEquals(expected, merge(new String[] { "a", "b", "c", "d", "e" },
+                                     new String[] { "a", "X", "c", "d", "e" },
+                                     new String[] { "a", "b", "c", "Y", "e" }));
+    }
+
+    public void testConflict() {
+        List<MergeRegion> regions = merge(new String[] { "a", "b", "c" },
+                                          new String[] { "a", "X", "c" },
+                                          new String[] { "a", "Y", "c" });
+        assertEquals(region(MergeRegion.CONFLICT, 1, 2, 1, 2, 1, 2), regions.get(1));
+        assertEquals(3, regions.size());
+    }
+
+    public void testBoth() {
+        List<MergeRegion> regions = merge(new String[] { "a", "b", "c" },
+                                          new String[] { "a", "X", "Z", "c" },
+                                          new String[] { "a", "X", "Z", "c" });
+        assertEquals(region(MergeRegion.BOTH, 1, 2, 1, 3, 1, 3), regions.get(1));
+        assertTrue(regions.get(1).isClean());
+    }
+
+    public void testBothComparable() {
+        // 1.0 and 1.00 are equal by compareTo, as the engine compares them:
+        List<BigDecimal> base = Arrays.asList(new BigDecimal("0"), new BigDecimal("2"), new BigDecimal("3"));
+        List<BigDecimal> ours = Arrays.asList(new BigDecimal("0"), new BigDecimal("1.0"), new BigDecimal("3"));
+        List<BigDecimal> theirs = Arrays.asList(new BigDecimal("0"), new BigDecimal("1.00"), new BigDecimal("3"));
+        List<MergeRegion> regions = new Diff3<BigDecimal>(base, ours, theirs).execute();
+        assertEquals(region(MergeRegion.BOTH, 1, 2, 1, 2, 1, 2), regions.get(1));
+        assertEquals(3, regions.size());
+    }
+
+    public void testStableJoined() {
+        // an engine that matches only "b", so that the other elements, though
+        // unchanged, are not matched:
+        DiffEngine engine = new DiffEngine() {
+            public <T> Alignment getAlignment(List<T> from, List<T> to, Comparator<T> comp) {
+                int[] matches = new int[from.size()];
+                Arrays.fill(matches, -1);
+                matches[from.indexOf("b")] = to.indexOf("b");
+                return new Alignment(matches, false);
+            }
+
+            public String getKey() {
+                return "b";
+            }
+        };
+
+        List<String> a = Arrays.asList("a", "b", "c");
+        assertEquals(Arrays.asList(region(MergeRegion.STABLE, 0, 3, 0, 3, 0, 3)), new Diff3<String>(a, a, a, null, engine, null).execute());
+    }
+
+    public void testInsertions() {
+        List<MergeRegion> expected = Arrays.asList(region(MergeRegion.THEIRS, 0, 0, 0, 0, 0, 1),
+                                                   region(MergeRegion.STABLE, 0, 2, 0, 2, 1, 3),
+                                                   region(MergeRegion.OURS,   2, 2, 2, 3, 3, 3));
+        assertEquals(expected, merge(new String[] { "a", "b" },
+                                     new String[] { "a", "b", "c" },
+                                     new String[] { "z", "a", "b" }));
+    }
+
+    public void testHasConflicts() {
+        String[] base = new String[] { "a", "b" };
+        assertFalse(new Diff3<String>(base, new String[] { "a" }, base).hasConflicts());
+        assertTrue(new Diff3<String>(base, new String[] { "a", "x" }, new String[] { "a", "y" }).hasConflicts());
+
+        // the regions are kept:
+        Diff3<String> diff3 = new Diff3<String>(base, new String[] { "a", "x" }, base);
+        assertFalse(diff3.hasConflicts());
+        assertSame(diff3.execute(), diff3.execute());
+    }
+
+    public List<Integer> mutate(List<Integer> list, Random random) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (Integer value : list) {
+            int r = random.nextInt(10);
+            if (r == 0) {
+                result.add(10 + random.nextInt(5));
+            }
+            else if (r == 1) {
+                result.add(value);
+                result.add(10 + random.nextInt(5));
+            }
+            else if (r != 2) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    public void testRegionsCoverAll() {
+        Random random = new Random(19);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int count = 0; count < 50; ++count) {
+                List<Integer> base = new ArrayList<Integer>();
+                for (int idx = random.nextInt(200); idx > 0; --idx) {
+                    base.add(random.nextInt(10));
+                }
+                List<Integer> ours = mutate(base, random);
+                List<Integer> theirs = mutate(base, random);
+
+                List<MergeRegion> regions = new Diff3<Integer>(base, ours, theirs).execute();
+                assertEquals(regions, new Diff3<Integer>(base, ours, theirs, null, new LCSEngine(), executor).execute());
+
+                int b = 0, o = 0, t = 0;
+                for (MergeRegion region : regions) {
+                    assertEquals(b, region.getBaseStart());
+                    assertEquals(o, region.getOursStart());
+                    assertEquals(t, region.getTheirsStart());
+                    b = region.getBaseEnd();
+                    o = region.getOursEnd();
+                    t = region.getTheirsEnd();
+                    if (region.getType() == MergeRegion.STABLE) {
+                        assertEquals(base.subList(region.getBaseStart(), b), ours.subList(region.getOursStart(), o));
+                        assertEquals(base.subList(region.getBaseStart(), b), theirs.subList(region.getTheirsStart(), t));
+                    }
+                }
+                assertEquals(base.size(), b);
+                assertEquals(ours.size(), o);
+                assertEquals(theirs.size(), t);
+
+                // merging with an unchanged side gives the other:
+                List<MergeRegion> oursOnly = new Diff3<Integer>(base, ours, base).execute();
+                List<Integer> merged = new ArrayList<Integer>();
+                for (MergeRegion region : oursOnly) {
+                    assertTrue(region.getType() == MergeRegion.STABLE || region.getType() == MergeRegion.OURS);
+                    merged.addAll(ours.subList(region.getOursStart(), region.getOursEnd()));
+                }
+                assertEquals(ours, merged);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import junit.framework.TestCase;
+
+import static org.incava.diff.Util.list;
+
+public class TestDiffBatch extends TestCase {
+    public TestDiffBatch(String name) {
+        super(name);
+    }
+
+    public List<Integer> sequence(int count, int distinct, Random random) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int idx = 0; idx < count; ++idx) {
+            list.add(random.nextInt(distinct));
+        }
+        return list;
+    }
+
+    public void testInOrder() {
+        Random random = new Random(16);
+        DiffBatch<Integer> batch = new DiffBatch<Integer>();
+        List<List<Difference>> expected = new ArrayList<List<Difference>>();
+        for (int count = 0; count < 40; ++count) {
+            List<Integer> from = sequence(random.nextInt(300), 1 + random.nextInt(30), random);
+            List<Integer> to = sequence(random.nextInt(300), 1 + random.nextInt(30), random);
+            assertEquals(count, batch.add(from, to));
+            expected.add(new Diff<Integer>(from, to).execute());
+        }
+
+        final AtomicIntegerArray completed = new AtomicIntegerArray(batch.size());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<List<Difference>> results = batch.execute(executor, new DiffBatch.Listener() {
+                public void onComplete(int index, List<Difference> differences) {
+                    completed.incrementAndGet(index);
+                }
+            });
+            assertEquals(expected, results);
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        for (int idx = 0; idx < batch.size(); ++idx) {
+            assertEquals(1, completed.get(idx));
+        }
+    }
+
+    public void testEngine() {
+        DiffBatch<String> batch = new DiffBatch<String>(null, new MyersEngine());
+        batch.add(new String[] { "a", "b", "c" }, new String[] { "a", "c" });
+        batch.add(new String[] { "a" }, new String[] { "a" });
+
+        List<List<Difference>> results = batch.execute();
+        assertEquals(2, results.size());
+        assertEquals(Arrays.asList(new Difference(1, 1, 1, Difference.NONE)), results.get(0));
+        assertTrue(results.get(1).isEmpty());
+    }
+
+    public void testOrderByCost() {
+        DiffBatch<String> batch = new DiffBatch<String>();
+
+        // the cost is from the sizes alone, not the elements:
+        List<String> large = new ArrayList<String>();
+        List<String> changed = new ArrayList<String>();
+        for (int idx = 0; idx < 1000; ++idx) {
+            large.add("x" + idx);
+            changed.add(idx == 500 ? "y" : "x" + idx);
+        }
+
+        List<String> from = new ArrayList<String>();
+        List<String> to = new ArrayList<String>();
+        for (int idx = 0; idx < 100; ++idx) {
+            from.add("a" + idx);
+            to.add("b" + idx);
+        }
+
+        batch.add(list("a"), list("b"));
+        batch.add(from, to);
+        batch.add(large, changed);
+
+        assertEquals(Arrays.asList(new Integer[] { 2, 1, 0 }), Arrays.asList(batch.getOrder()));
+    }
+
+    public void testFailureCancels() throws InterruptedException {
+        DiffBatch<String> batch = new DiffBatch<String>(new Comparator<String>() {
+            public int compare(String x, String y) {
+                if (x.equals("fail") || y.equals("fail")) {
+                    throw new IllegalStateException("fail");
+                }
+                else if (x.equals("slow")) {
+                    try {
+                        Thread.sleep(20);
+                    }
+                    catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return x.compareTo(y);
+            }
+        }, null);
+
+        // the failing pair is the largest, so it is started first:
+        batch.add(list("a", "fail", "z"), list("b", "c", "d"));
+        for (int count = 0; count < 50; ++count) {
+            batch.add(list("slow"), list("slow"));
+        }
+
+        final AtomicInteger completed = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            batch.execute(executor, new DiffBatch.Listener() {
+                public void onComplete(int index, List<Difference> differences) {
+                    completed.incrementAndGet();
+                }
+            });
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException ise) {
+            assertEquals("fail", ise.getMessage());
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue("completed: " + completed.get(), completed.get() < 50);
+    }
+}
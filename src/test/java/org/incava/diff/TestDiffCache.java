@@ -0,0 +1,155 @@
+package org.incava.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+
+import static org.incava.diff.Util.list;
+
+public class TestDiffCache extends TestCase {
+    private File directory;
+
+    public TestDiffCache(String name) {
+        super(name);
+    }
+
+    public void setUp() throws IOException {
+        directory = File.createTempFile("diffcache", "");
+        directory.delete();
+    }
+
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testHitAndMiss() {
+        List<String> a = list("a", "b", "c", "e", "h", "j", "l", "m", "n", "p");
+        List<String> b = list("b", "c", "d", "e", "f", "j", "k", "l", "m", "r", "s", "t");
+        List<Difference> expected = new Diff<String>(a, b).execute();
+
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8);
+        assertEquals(expected, new Diff<String>(a, b).execute(cache));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertEquals(expected, new Diff<String>(a, b).execute(cache));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // another engine is another key:
+        new Diff<String>(a, b, null, new MyersEngine()).execute(cache);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // as is another list:
+        new Diff<String>(a, list("b", "c")).execute(cache);
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.size());
+    }
+
+    public void testElementBoundaries() {
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8);
+        new Diff<String>(list("ab", "c"), list("x")).execute(cache);
+        new Diff<String>(list("a", "bc"), list("x")).execute(cache);
+        assertEquals(2, cache.getMisses());
+    }
+
+    public void testEviction() {
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8, 2, 1000, null);
+        List<String> a = list("a", "b");
+        List<String> b = list("b", "c");
+        List<String> c = list("c", "d");
+
+        new Diff<String>(a, b).execute(cache);
+        new Diff<String>(b, c).execute(cache);
+        // a-b is now the most recently used:
+        new Diff<String>(a, b).execute(cache);
+        new Diff<String>(c, a).execute(cache);
+        assertEquals(2, cache.size());
+
+        new Diff<String>(a, b).execute(cache);
+        assertEquals(2, cache.getHits());
+        new Diff<String>(b, c).execute(cache);
+        assertEquals(2, cache.getHits());
+    }
+
+    public void testEvictionBySize() {
+        // each of these has two differences, so eight points:
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8, 100, 10, null);
+        new Diff<String>(list("a", "x", "b"), list("y", "x", "z")).execute(cache);
+        new Diff<String>(list("c", "x", "d"), list("y", "x", "z")).execute(cache);
+        assertEquals(1, cache.size());
+    }
+
+    public void testDisk() {
+        List<String> a = list("a", "b", "c", "e", "h", "j", "l", "m", "n", "p");
+        List<String> b = list("b", "c", "d", "e", "f", "j", "k", "l", "m", "r", "s", "t");
+        List<Difference> expected = new Diff<String>(a, b).execute();
+
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8, 10, 1000, directory);
+        assertEquals(expected, new Diff<String>(a, b).execute(cache));
+        assertEquals(1, directory.listFiles().length);
+
+        // a new cache, as after a restart, reads it from disk:
+        DiffCache<String> restarted = new DiffCache<String>(ElementCodec.UTF_8, 10, 1000, directory);
+        Diff<String> diff = new Diff<String>(a, b);
+        assertEquals(expected, diff.execute(restarted));
+        assertTrue(diff.isMinimal());
+        assertEquals(1, restarted.getDiskHits());
+        assertEquals(0, restarted.getMisses());
+
+        // then from memory:
+        new Diff<String>(a, b).execute(restarted);
+        assertEquals(1, restarted.getHits());
+    }
+
+    public void testEngineParameters() {
+        List<String> a = list("a", "b", "c");
+        List<String> b = list("b", "c", "d");
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8);
+        new Diff<String>(a, b, null, new MyersEngine()).execute(cache);
+        new Diff<String>(a, b, null, new MyersEngine(4)).execute(cache);
+        new Diff<String>(a, b, null, new HistogramEngine(1)).execute(cache);
+        new Diff<String>(a, b, null, new HistogramEngine(64)).execute(cache);
+        assertEquals(4, cache.getMisses());
+
+        new Diff<String>(a, b, null, new MyersEngine(4)).execute(cache);
+        assertEquals(1, cache.getHits());
+    }
+
+    public void testComparator() {
+        List<String> a = list("a", "b");
+        List<String> b = list("B", "c");
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8);
+        new Diff<String>(a, b, String.CASE_INSENSITIVE_ORDER).execute(cache);
+        new Diff<String>(a, b, String.CASE_INSENSITIVE_ORDER).execute(cache);
+        assertEquals(1, cache.getHits());
+
+        // its state is not known, so it is not cached:
+        assertEquals(new Diff<String>(a, b, Collections.reverseOrder(String.CASE_INSENSITIVE_ORDER)).execute(),
+                     new Diff<String>(a, b, Collections.reverseOrder(String.CASE_INSENSITIVE_ORDER)).execute(cache));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMisses());
+    }
+
+    public void testDiskEviction() {
+        // each file has two differences, so eleven ints:
+        DiffCache<String> cache = new DiffCache<String>(ElementCodec.UTF_8, 10, 1000, directory, 100);
+        new Diff<String>(list("a", "x", "b"), list("y", "x", "z")).execute(cache);
+        new Diff<String>(list("c", "x", "d"), list("y", "x", "z")).execute(cache);
+        assertEquals(2, directory.listFiles().length);
+        assertEquals(88, cache.getDiskBytes());
+
+        new Diff<String>(list("e", "x", "f"), list("y", "x", "z")).execute(cache);
+        assertEquals(2, directory.listFiles().length);
+        assertEquals(88, cache.getDiskBytes());
+    }
+}
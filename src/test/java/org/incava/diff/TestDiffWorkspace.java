@@ -0,0 +1,65 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class TestDiffWorkspace extends TestCase {
+    public TestDiffWorkspace(String name) {
+        super(name);
+    }
+
+    public List<Integer> sequence(int count, int distinct, Random random) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int idx = 0; idx < count; ++idx) {
+            list.add(random.nextInt(distinct));
+        }
+        return list;
+    }
+
+    public void testReused() {
+        DiffWorkspace workspace = new DiffWorkspace();
+        Random random = new Random(15);
+
+        // the buffers are left dirty by each diff, and larger or smaller than
+        // the next needs:
+        for (int count = 0; count < 50; ++count) {
+            List<Integer> from = sequence(random.nextInt(200), 1 + random.nextInt(20), random);
+            List<Integer> to = sequence(random.nextInt(200), 1 + random.nextInt(20), random);
+
+            List<Difference> expected = new Diff<Integer>(from, to).execute();
+            assertEquals(expected, new Diff<Integer>(from, to, null, new LCSEngine(workspace)).execute());
+        }
+    }
+
+    public void testBuffer() {
+        DiffWorkspace workspace = new DiffWorkspace(100);
+        int[] buffer = workspace.getBuffer(DiffWorkspace.MATCHES, 10);
+        assertSame(buffer, workspace.getBuffer(DiffWorkspace.MATCHES, 5));
+        assertNotSame(buffer, workspace.getBuffer(DiffWorkspace.POSITIONS, 5));
+
+        // too large to keep:
+        int[] large = workspace.getBuffer(DiffWorkspace.MATCHES, 200);
+        assertEquals(200, large.length);
+        assertNotSame(large, workspace.getBuffer(DiffWorkspace.MATCHES, 200));
+    }
+
+    public void testThresholdsAndLinks() {
+        DiffWorkspace workspace = new DiffWorkspace();
+        Thresholds thresh = workspace.getThresholds();
+        thresh.insert(4, -1);
+        assertSame(thresh, workspace.getThresholds());
+        assertTrue(thresh.isEmpty());
+
+        LCSTable links = workspace.getLinks();
+        links.update(0, 0, 0);
+        links.update(1, 1, 1);
+        assertSame(links, workspace.getLinks());
+        assertTrue(links.getChain(1).isEmpty());
+    }
+
+    public void testForCurrentThread() {
+        assertSame(DiffWorkspace.forCurrentThread(), DiffWorkspace.forCurrentThread());
+    }
+}
@@ -0,0 +1,126 @@
+package org.incava.diff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.List;
+import junit.framework.TestCase;
+
+import static org.incava.diff.Util.list;
+
+public class TestDiffWriter extends TestCase {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<String> from = list("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m");
+
+    private final List<String> to = list("a", "B", "c", "d", "e", "f", "g", "h", "i", "j", "k", "m", "n");
+
+    public TestDiffWriter(String name) {
+        super(name);
+    }
+
+    public String write(List<String> a, List<String> b, int format, int context) throws IOException {
+        StringWriter sw = new StringWriter();
+        DiffWriter<String> writer = new DiffWriter<String>(a, b, format, context, sw);
+        writer.setNames("f1", "f2");
+        writer.write(new Diff<String>(a, b));
+        return sw.toString();
+    }
+
+    public String lines(String ... lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void testUnified() throws IOException {
+        String expected = lines("--- f1", "+++ f2",
+                                "@@ -1,5 +1,5 @@", " a", "-b", "+B", " c", " d", " e",
+                                "@@ -9,5 +9,5 @@", " i", " j", " k", "-l", " m", "+n");
+        assertEquals(expected, write(from, to, DiffWriter.UNIFIED, 3));
+    }
+
+    public void testUnifiedNoContext() throws IOException {
+        String expected = lines("--- f1", "+++ f2",
+                                "@@ -2 +2 @@", "-b", "+B",
+                                "@@ -12 +11,0 @@", "-l",
+                                "@@ -13,0 +13 @@", "+n");
+        assertEquals(expected, write(from, to, DiffWriter.UNIFIED, 0));
+    }
+
+    public void testUnifiedJoined() throws IOException {
+        String output = write(from, to, DiffWriter.UNIFIED, 5);
+        assertTrue(output.startsWith(lines("--- f1", "+++ f2", "@@ -1,13 +1,13 @@")));
+        assertEquals(1, output.split("@@ ").length - 1);
+    }
+
+    public void testUnifiedEmpty() throws IOException {
+        List<String> empty = list();
+        assertEquals(lines("--- f1", "+++ f2", "@@ -0,0 +1,2 @@", "+a", "+b"), write(empty, list("a", "b"), DiffWriter.UNIFIED, 3));
+        assertEquals("", write(from, from, DiffWriter.UNIFIED, 3));
+    }
+
+    public void testContext() throws IOException {
+        String expected = lines("*** f1", "--- f2",
+                                "***************", "*** 1,5 ****", "  a", "! b", "  c", "  d", "  e",
+                                "--- 1,5 ----", "  a", "! B", "  c", "  d", "  e",
+                                "***************", "*** 9,13 ****", "  i", "  j", "  k", "- l", "  m",
+                                "--- 9,13 ----", "  i", "  j", "  k", "  m", "+ n");
+        assertEquals(expected, write(from, to, DiffWriter.CONTEXT, 3));
+    }
+
+    public void testContextNoContext() throws IOException {
+        String expected = lines("*** f1", "--- f2",
+                                "***************", "*** 2 ****", "! b", "--- 2 ----", "! B",
+                                "***************", "*** 12 ****", "- l", "--- 11 ----",
+                                "***************", "*** 13 ****", "--- 13 ----", "+ n");
+        assertEquals(expected, write(from, to, DiffWriter.CONTEXT, 0));
+    }
+
+    public void testStream() throws IOException {
+        List<String> a = list("caf\u00e9", "x");
+        List<String> b = list("caf\u00e9", "y");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DiffWriter<String> writer = new DiffWriter<String>(a, b, DiffWriter.UNIFIED, 3, out, UTF_8);
+        writer.write(new Diff<String>(a, b));
+        assertEquals(write(a, b, DiffWriter.UNIFIED, 3).replaceFirst("(?s)^.*?@@", "@@"), new String(out.toByteArray(), UTF_8));
+    }
+
+    public void testLargeOutput() throws IOException {
+        List<String> a = list();
+        List<String> b = list();
+        for (int idx = 0; idx < 5000; ++idx) {
+            a.add("line " + idx);
+            b.add(idx % 7 == 0 ? "changed " + idx : "line " + idx);
+        }
+        StringWriter sw = new StringWriter();
+        new DiffWriter<String>(a, b, sw).write(new Diff<String>(a, b));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DiffWriter<String>(a, b, DiffWriter.UNIFIED, DiffWriter.DEFAULT_CONTEXT, out, UTF_8).write(new Diff<String>(a, b));
+        assertEquals(sw.toString(), new String(out.toByteArray(), UTF_8));
+        assertTrue(sw.toString().length() > 2 * DiffWriter.BUFFER_SIZE);
+    }
+
+    public void testSurrogatesAcrossBuffer() throws IOException {
+        // after "@@ -0,0 +1 @@\n+", the pairs start at an odd offset, so one
+        // is split at the end of the buffer:
+        StringBuilder sb = new StringBuilder();
+        for (int idx = 0; idx < 9000; ++idx) {
+            sb.append("\ud83d\ude00");
+        }
+        List<String> a = list();
+        List<String> b = list(sb.toString());
+        StringWriter sw = new StringWriter();
+        new DiffWriter<String>(a, b, sw).write(new Diff<String>(a, b));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DiffWriter<String>(a, b, DiffWriter.UNIFIED, DiffWriter.DEFAULT_CONTEXT, out, UTF_8).write(new Diff<String>(a, b));
+        String written = new String(out.toByteArray(), UTF_8);
+        assertEquals(15 + 18000 + 1, written.length());
+        assertEquals(sw.toString(), written);
+    }
+}
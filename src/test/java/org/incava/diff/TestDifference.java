@@ -35,6 +35,12 @@ public class TestDifference extends TestCase {
         assertEquals(db, da);
     }
 
+    public void testEqualsTrueLargeValues() {
+        Difference da = new Difference(1000, 2000, 3000, 4000);
+        Difference db = new Difference(1000, 2000, 3000, 4000);
+        assertEquals(db, da);
+    }
+
     public void testEqualsFalseNull() {
         Difference d = new Difference(4, 6, 11, 14);
         assertFalse(d.equals(null));
@@ -0,0 +1,113 @@
+package org.incava.diff;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+import static org.incava.diff.Util.list;
+
+public class TestExternalDiff extends TestCase {
+    public TestExternalDiff(String name) {
+        super(name);
+    }
+
+    public List<Difference> diff(List<Integer> from, List<Integer> to, int windowSize) {
+        return new ExternalDiff<Integer>(from.iterator(), to.iterator(), null, new LinearSpaceEngine(), windowSize).execute();
+    }
+
+    public void assertValid(List<Integer> from, List<Integer> to, List<Difference> differences) {
+        List<Integer> result = new ArrayList<Integer>(from);
+        int lastDel = -1;
+        int lastAdd = -1;
+        for (int di = differences.size() - 1; di >= 0; --di) {
+            Difference d = differences.get(di);
+            int delCount = d.getDeletedEnd() == Difference.NONE ? 0 : d.getDeletedEnd() - d.getDeletedStart() + 1;
+            result.subList(d.getDeletedStart(), d.getDeletedStart() + delCount).clear();
+            if (d.getAddedEnd() != Difference.NONE) {
+                result.addAll(d.getDeletedStart(), to.subList(d.getAddedStart(), d.getAddedEnd() + 1));
+            }
+        }
+        assertEquals(to, result);
+
+        // no two differences are adjacent, as they would be one:
+        for (Difference d : differences) {
+            assertTrue(d.getDeletedStart() > lastDel + 1 || d.getAddedStart() > lastAdd + 1 || lastDel == -1);
+            lastDel = d.getDeletedEnd() == Difference.NONE ? d.getDeletedStart() - 1 : d.getDeletedEnd();
+            lastAdd = d.getAddedEnd() == Difference.NONE ? d.getAddedStart() - 1 : d.getAddedEnd();
+        }
+    }
+
+    public List<Integer> mutate(List<Integer> list, Random random) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (Integer value : list) {
+            int r = random.nextInt(20);
+            if (r == 0) {
+                result.add(random.nextInt(1000));
+            }
+            else if (r == 1) {
+                result.add(value);
+                result.add(random.nextInt(1000));
+            }
+            else if (r != 2) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    public void testSmallWindows() {
+        Random random = new Random(22);
+        for (int count = 0; count < 30; ++count) {
+            List<Integer> from = new ArrayList<Integer>();
+            for (int idx = random.nextInt(2000); idx > 0; --idx) {
+                from.add(random.nextInt(1000));
+            }
+            List<Integer> to = mutate(from, random);
+            assertValid(from, to, diff(from, to, 2 + random.nextInt(100)));
+        }
+    }
+
+    public void testUnrelated() {
+        Random random = new Random(23);
+        List<Integer> from = new ArrayList<Integer>();
+        List<Integer> to = new ArrayList<Integer>();
+        for (int idx = 0; idx < 500; ++idx) {
+            from.add(random.nextInt(5));
+            to.add(5 + random.nextInt(5));
+        }
+        List<Difference> differences = diff(from, to, 40);
+        assertValid(from, to, differences);
+        assertEquals(list(new Difference(0, 499, 0, 499)), differences);
+    }
+
+    public void testSameAsDiff() {
+        Random random = new Random(24);
+        for (int count = 0; count < 20; ++count) {
+            List<Integer> from = new ArrayList<Integer>();
+            for (int idx = random.nextInt(300); idx > 0; --idx) {
+                from.add(random.nextInt(50));
+            }
+            List<Integer> to = mutate(from, random);
+            List<Difference> expected = new Diff<Integer>(from, to, null, new LinearSpaceEngine()).execute();
+            assertEquals(expected, diff(from, to, 1000));
+        }
+    }
+
+    public void testEmpty() {
+        List<Integer> empty = new ArrayList<Integer>();
+        assertEquals(new ArrayList<Difference>(), diff(empty, empty, 10));
+        assertEquals(list(new Difference(0, Difference.NONE, 0, 2)), diff(empty, list(1, 2, 3), 2));
+        assertEquals(list(new Difference(0, 2, 0, Difference.NONE)), diff(list(1, 2, 3), empty, 2));
+    }
+
+    public void testLines() {
+        Iterator<String> from = ExternalDiff.lines(new BufferedReader(new StringReader("a\nb\nc\n")));
+        Iterator<String> to = ExternalDiff.lines(new BufferedReader(new StringReader("a\nc\nd\n")));
+        List<Difference> expected = list(new Difference(1, 1, 1, Difference.NONE), new Difference(3, Difference.NONE, 2, 2));
+        assertEquals(expected, new ExternalDiff<String>(from, to).execute());
+    }
+}
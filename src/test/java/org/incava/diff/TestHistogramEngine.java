@@ -0,0 +1,34 @@
+package org.incava.diff;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.incava.diff.Util.list;
+
+/**
+ * Runs the <code>Diff</code> tests with the histogram engine.
+ */
+public class TestHistogramEngine extends TestDiff {
+    public TestHistogramEngine(String name) {
+        super(name);
+    }
+
+    protected DiffEngine getEngine() {
+        return new HistogramEngine();
+    }
+
+    public void testMaxChainLength() {
+        List<String> from = list("a", "a", "b");
+        List<String> to = list("c", "a", "d");
+
+        // "a" occurs twice, so it is not an anchor, and Myers finds the
+        // matches, minimally:
+        HistogramEngine engine = new HistogramEngine(1);
+        assertNull(engine.findAnchor(new LCS<String>(from, to, null), from, to, null, 0, 3, 0, 3));
+        assertTrue(engine.getAlignment(from, to, null).isMinimal());
+
+        engine = new HistogramEngine(2);
+        assertTrue(Arrays.equals(new int[] { 0, 1, 1, 2 }, engine.findAnchor(new LCS<String>(from, to, null), from, to, null, 0, 3, 0, 3)));
+        assertFalse(engine.getAlignment(from, to, null).isMinimal());
+    }
+}
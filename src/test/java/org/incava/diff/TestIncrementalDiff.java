@@ -0,0 +1,133 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+import static org.incava.diff.Util.list;
+
+public class TestIncrementalDiff extends TestCase {
+    public TestIncrementalDiff(String name) {
+        super(name);
+    }
+
+    public void assertValid(IncrementalDiff<String> diff) {
+        List<String> from = diff.getFrom();
+        List<String> to = diff.getTo();
+        Alignment alignment = diff.getAlignment();
+
+        int last = -1;
+        for (int idx = 0; idx < from.size(); ++idx) {
+            int match = alignment.getMatch(idx);
+            if (match != -1) {
+                assertTrue("match: " + match + " after " + last, match > last);
+                assertEquals(from.get(idx), to.get(match));
+                last = match;
+            }
+        }
+        assertTrue(last < to.size());
+
+        // the differences turn "from" into "to":
+        List<String> result = new ArrayList<String>(from);
+        List<Difference> differences = diff.execute();
+        for (int di = differences.size() - 1; di >= 0; --di) {
+            Difference d = differences.get(di);
+            int delCount = d.getDeletedEnd() == Difference.NONE ? 0 : d.getDeletedEnd() - d.getDeletedStart() + 1;
+            result.subList(d.getDeletedStart(), d.getDeletedStart() + delCount).clear();
+            if (d.getAddedEnd() != Difference.NONE) {
+                result.addAll(d.getDeletedStart(), to.subList(d.getAddedStart(), d.getAddedEnd() + 1));
+            }
+        }
+        assertEquals(to, result);
+    }
+
+    public void testInitial() {
+        List<String> a = list("a", "b", "c", "e", "h", "j", "l", "m", "n", "p");
+        List<String> b = list("b", "c", "d", "e", "f", "j", "k", "l", "m", "r", "s", "t");
+        IncrementalDiff<String> diff = new IncrementalDiff<String>(a, b);
+        assertEquals(new Diff<String>(a, b).execute(), diff.execute());
+        assertTrue(diff.isMinimal());
+    }
+
+    public void testReplaceTo() {
+        List<String> a = list("a", "b", "c", "d", "e");
+        IncrementalDiff<String> diff = new IncrementalDiff<String>(a, a);
+        assertTrue(diff.execute().isEmpty());
+
+        // a line is edited:
+        diff.replaceTo(2, 1, list("cx"));
+        assertEquals(list(new Difference(2, 2, 2, 2)), diff.execute());
+        assertFalse(diff.isMinimal());
+
+        // and edited back:
+        diff.replaceTo(2, 1, list("c"));
+        assertTrue(diff.execute().isEmpty());
+
+        // lines are inserted and deleted:
+        diff.replaceTo(1, 0, list("x", "y"));
+        diff.replaceTo(5, 1, new ArrayList<String>());
+        assertEquals(list(new Difference(1, Difference.NONE, 1, 2), new Difference(3, 3, 5, Difference.NONE)), diff.execute());
+        assertValid(diff);
+    }
+
+    public void testReplaceFrom() {
+        List<String> a = list("a", "b", "c", "d", "e");
+        IncrementalDiff<String> diff = new IncrementalDiff<String>(a, a);
+
+        diff.replaceFrom(0, 2, list("x"));
+        assertEquals(list(new Difference(0, 0, 0, 1)), diff.execute());
+
+        diff.replaceFrom(3, 1, list("d", "e", "f"));
+        // the gap is only after the "d" that is still matched:
+        assertEquals(list(new Difference(0, 0, 0, 1), new Difference(3, 3, 4, Difference.NONE), new Difference(5, 5, 5, Difference.NONE)), diff.execute());
+        assertValid(diff);
+    }
+
+    public void testInvalidRange() {
+        IncrementalDiff<String> diff = new IncrementalDiff<String>(list("a"), list("a"));
+        try {
+            diff.replaceTo(1, 1, list("b"));
+            fail("expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ioobe) {
+        }
+    }
+
+    public void testRandomEdits() {
+        Random random = new Random(18);
+        List<String> from = new ArrayList<String>();
+        for (int idx = 0; idx < 200; ++idx) {
+            from.add("" + random.nextInt(20));
+        }
+        IncrementalDiff<String> diff = new IncrementalDiff<String>(from, from);
+
+        for (int edit = 0; edit < 300; ++edit) {
+            boolean onFrom = random.nextBoolean();
+            List<String> list = onFrom ? diff.getFrom() : diff.getTo();
+            int start = random.nextInt(list.size() + 1);
+            int count = random.nextInt(Math.min(4, list.size() - start) + 1);
+            List<String> elements = new ArrayList<String>();
+            for (int idx = random.nextInt(4); idx > 0; --idx) {
+                elements.add("" + random.nextInt(20));
+            }
+
+            if (onFrom) {
+                diff.replaceFrom(start, count, elements);
+            }
+            else {
+                diff.replaceTo(start, count, elements);
+            }
+            assertValid(diff);
+        }
+    }
+
+    public void testToEmpty() {
+        IncrementalDiff<String> diff = new IncrementalDiff<String>(list("a", "b"), list("a", "b"));
+        diff.replaceTo(0, 2, Collections.<String>emptyList());
+        assertEquals(list(new Difference(0, 1, 0, Difference.NONE)), diff.execute());
+        diff.replaceTo(0, 0, list("b"));
+        assertEquals(list(new Difference(0, 0, 0, Difference.NONE)), diff.execute());
+    }
+}
@@ -0,0 +1,38 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestIntDiff extends PrimitiveDiffTestCase<Integer> {
+    public TestIntDiff(String name) {
+        super(name, 1000);
+    }
+
+    protected Diff<Integer> createDiff(long[] from, long[] to) {
+        return new IntDiff(toInts(from), toInts(to));
+    }
+
+    protected Diff<Integer> createDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength) {
+        return new IntDiff(toInts(from), fromOffset, fromLength, toInts(to), toOffset, toLength);
+    }
+
+    protected Diff<Integer> createDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength, MatcherEngine engine) {
+        return new IntDiff(toInts(from), fromOffset, fromLength, toInts(to), toOffset, toLength, engine);
+    }
+
+    protected List<Integer> toList(long[] values) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (long value : values) {
+            list.add((int)value);
+        }
+        return list;
+    }
+
+    public int[] toInts(long[] values) {
+        int[] ary = new int[values.length];
+        for (int idx = 0; idx < values.length; ++idx) {
+            ary[idx] = (int)values[idx];
+        }
+        return ary;
+    }
+}
@@ -0,0 +1,38 @@
+package org.incava.diff;
+
+import java.util.Arrays;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class TestLCSTable extends TestCase {
+    public TestLCSTable(String name) {
+        super(name);
+    }
+
+    public void testChain() {
+        LCSTable links = new LCSTable(1);
+        links.update(0, 2, 0);
+        links.update(1, 0, 0);
+        links.update(2, 3, 1);
+        links.update(3, 4, 2);
+        links.update(4, 1, 1);
+
+        int[] matches = new int[5];
+        Arrays.fill(matches, -1);
+        links.addChain(2, matches);
+        assertEquals("[-1, 0, 3, 4, -1]", Arrays.toString(matches));
+
+        Map<Integer, Integer> chain = links.getChain(1);
+        assertEquals(2, chain.size());
+        assertEquals(Integer.valueOf(0), chain.get(1));
+        assertEquals(Integer.valueOf(1), chain.get(4));
+    }
+
+    public void testNoChain() {
+        LCSTable links = new LCSTable();
+        int[] matches = new int[] { -1, -1 };
+        links.addChain(40, matches);
+        assertEquals("[-1, -1]", Arrays.toString(matches));
+        assertTrue(links.getChain(0).isEmpty());
+    }
+}
@@ -0,0 +1,70 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the <code>Diff</code> tests with the linear space engine.
+ */
+public class TestLinearSpaceEngine extends TestDiff {
+    public TestLinearSpaceEngine(String name) {
+        super(name);
+    }
+
+    protected DiffEngine getEngine() {
+        return new LinearSpaceEngine();
+    }
+
+    public List<String> sequence(int count, int seed) {
+        List<String> list = new ArrayList<String>();
+        for (int idx = 0; idx < count; ++idx) {
+            list.add(String.valueOf((idx * seed) % 7));
+        }
+        return list;
+    }
+
+    public void testMaxCostExceeded() {
+        List<String> a = sequence(200, 3);
+        List<String> b = sequence(180, 5);
+
+        Diff<String> diff = new Diff<String>(a, b, null, new LinearSpaceEngine(4));
+        List<Difference> differences = diff.execute();
+        assertFalse(diff.isMinimal());
+
+        // the differences still account for every element:
+        int deleted = 0;
+        int added = 0;
+        for (Difference d : differences) {
+            deleted += d.isAdd() ? 0 : d.getDeletedEnd() - d.getDeletedStart() + 1;
+            added += d.isDelete() ? 0 : d.getAddedEnd() - d.getAddedStart() + 1;
+        }
+        assertEquals(a.size() - b.size(), deleted - added);
+    }
+
+    public void testMaxCostNotExceeded() {
+        List<String> a = sequence(200, 3);
+        List<String> b = new ArrayList<String>(a);
+        b.remove(50);
+        b.add(120, "x");
+
+        Diff<String> diff = new Diff<String>(a, b, null, new LinearSpaceEngine(10));
+        List<Difference> differences = diff.execute();
+        assertTrue(diff.isMinimal());
+        assertEquals(2, differences.size());
+    }
+
+    public void testMaxCostLarge() {
+        // with nothing in common, each split is only a step into the ranges:
+        List<Integer> a = new ArrayList<Integer>();
+        List<Integer> b = new ArrayList<Integer>();
+        for (int idx = 0; idx < 100000; ++idx) {
+            a.add(idx);
+            b.add(idx + 100000);
+        }
+
+        Diff<Integer> diff = new Diff<Integer>(a, b, null, new LinearSpaceEngine(1));
+        List<Difference> differences = diff.execute();
+        assertEquals(1, differences.size());
+        assertEquals(new Difference(0, 99999, 0, 99999), differences.get(0));
+    }
+}
@@ -0,0 +1,30 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestLongDiff extends PrimitiveDiffTestCase<Long> {
+    public TestLongDiff(String name) {
+        super(name, 10000000000L);
+    }
+
+    protected Diff<Long> createDiff(long[] from, long[] to) {
+        return new LongDiff(from, to);
+    }
+
+    protected Diff<Long> createDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength) {
+        return new LongDiff(from, fromOffset, fromLength, to, toOffset, toLength);
+    }
+
+    protected Diff<Long> createDiff(long[] from, int fromOffset, int fromLength, long[] to, int toOffset, int toLength, MatcherEngine engine) {
+        return new LongDiff(from, fromOffset, fromLength, to, toOffset, toLength, engine);
+    }
+
+    protected List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<Long>();
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
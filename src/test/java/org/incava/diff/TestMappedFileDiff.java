@@ -0,0 +1,97 @@
+package org.incava.diff;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class TestMappedFileDiff extends TestCase {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private List<File> files;
+
+    public TestMappedFileDiff(String name) {
+        super(name);
+    }
+
+    public void setUp() {
+        files = new ArrayList<File>();
+    }
+
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    public File write(String contents) throws IOException {
+        File file = File.createTempFile("mappedfilediff", ".txt");
+        files.add(file);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents.getBytes(UTF_8));
+        }
+        finally {
+            out.close();
+        }
+        return file;
+    }
+
+    public String join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void testLines() throws IOException {
+        MappedLines lines = new MappedLines(write("abc\n\nd\u00e9f"));
+        assertEquals(3, lines.size());
+        assertEquals(0, lines.getStart(0));
+        assertEquals(3, lines.getLength(0));
+        assertEquals(0, lines.getLength(1));
+        assertEquals(5, lines.getStart(2));
+        assertEquals("d\u00e9f", lines.getString(2, UTF_8));
+        assertEquals(lines.getHash(0), new MappedLines(write("x\nabc\n")).getHash(1));
+    }
+
+    public void testEmpty() throws IOException {
+        MappedLines lines = new MappedLines(write(""));
+        assertEquals(0, lines.size());
+        assertEquals(1, new MappedFileDiff(lines, new MappedLines(write("a\n"))).execute().size());
+    }
+
+    public void testEquals() throws IOException {
+        MappedLines x = new MappedLines(write("abc\nab\nabd\n"));
+        MappedLines y = new MappedLines(write("abd\nabc\n"));
+        assertTrue(x.equals(0, y, 1));
+        assertTrue(x.equals(2, y, 0));
+        assertFalse(x.equals(1, y, 1));
+        assertFalse(x.equals(0, y, 0));
+    }
+
+    public void testSameAsDiff() throws IOException {
+        Random random = new Random(21);
+        for (int count = 0; count < 20; ++count) {
+            List<String> a = new ArrayList<String>();
+            List<String> b = new ArrayList<String>();
+            for (int idx = random.nextInt(200); idx > 0; --idx) {
+                a.add("line " + random.nextInt(15));
+            }
+            for (int idx = random.nextInt(200); idx > 0; --idx) {
+                b.add("line " + random.nextInt(15));
+            }
+
+            MappedLines from = new MappedLines(write(join(a)));
+            MappedLines to = new MappedLines(write(join(b)));
+            assertEquals(new Diff<String>(a, b).execute(), new MappedFileDiff(from, to).execute());
+            assertEquals(new Diff<String>(a, b, null, new LinearSpaceEngine()).execute(), new MappedFileDiff(from, to, new LinearSpaceEngine()).execute());
+            assertEquals(new Diff<String>(a, b, null, new HistogramEngine(4)).execute(), new MappedFileDiff(from, to, new HistogramEngine(4)).execute());
+        }
+    }
+}
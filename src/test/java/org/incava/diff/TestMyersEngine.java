@@ -0,0 +1,55 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the <code>Diff</code> tests with the Myers engine.
+ */
+public class TestMyersEngine extends TestDiff {
+    public TestMyersEngine(String name) {
+        super(name);
+    }
+
+    protected DiffEngine getEngine() {
+        return new MyersEngine();
+    }
+
+    public List<String> sequence(int count, int seed) {
+        List<String> list = new ArrayList<String>();
+        for (int idx = 0; idx < count; ++idx) {
+            list.add(String.valueOf((idx * seed) % 7));
+        }
+        return list;
+    }
+
+    public void testMaxCostExceeded() {
+        List<String> a = sequence(200, 3);
+        List<String> b = sequence(180, 5);
+
+        Diff<String> diff = new Diff<String>(a, b, null, new MyersEngine(4));
+        List<Difference> differences = diff.execute();
+        assertFalse(diff.isMinimal());
+
+        // the differences still account for every element:
+        int deleted = 0;
+        int added = 0;
+        for (Difference d : differences) {
+            deleted += d.isAdd() ? 0 : d.getDeletedEnd() - d.getDeletedStart() + 1;
+            added += d.isDelete() ? 0 : d.getAddedEnd() - d.getAddedStart() + 1;
+        }
+        assertEquals(a.size() - b.size(), deleted - added);
+    }
+
+    public void testMaxCostNotExceeded() {
+        List<String> a = sequence(200, 3);
+        List<String> b = new ArrayList<String>(a);
+        b.remove(50);
+        b.add(120, "x");
+
+        Diff<String> diff = new Diff<String>(a, b, null, new MyersEngine(10));
+        List<Difference> differences = diff.execute();
+        assertTrue(diff.isMinimal());
+        assertEquals(2, differences.size());
+    }
+}
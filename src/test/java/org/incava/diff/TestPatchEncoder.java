@@ -0,0 +1,174 @@
+package org.incava.diff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+import static org.incava.diff.Util.list;
+
+public class TestPatchEncoder extends TestCase {
+    public TestPatchEncoder(String name) {
+        super(name);
+    }
+
+    public List<String> sequence(int count, Random random) {
+        List<String> list = new ArrayList<String>();
+        for (int idx = 0; idx < count; ++idx) {
+            list.add("line " + random.nextInt(20));
+        }
+        return list;
+    }
+
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(24);
+        for (int count = 0; count < 30; ++count) {
+            List<String> from = sequence(random.nextInt(300), random);
+            List<String> to = sequence(random.nextInt(300), random);
+            List<Difference> differences = new Diff<String>(from, to).execute();
+
+            PatchEncoder<String> encoder = new PatchEncoder<String>();
+            new Diff<String>(from, to).execute(encoder);
+            encoder.finish();
+            assertEquals(differences, new PatchDecoder<String>(encoder.getBuffer()).decode());
+        }
+    }
+
+    public void testPayload() throws IOException {
+        List<String> from = list("a", "b", "c", "d");
+        List<String> to = list("a", "x", "c", "d", "\u00e9t\u00e9");
+        List<Difference> differences = new Diff<String>(from, to).execute();
+
+        PatchEncoder<String> encoder = new PatchEncoder<String>(to, ElementCodec.UTF_8);
+        encoder.encode(differences);
+        encoder.finish();
+
+        PatchDecoder<String> decoder = new PatchDecoder<String>(encoder.getBuffer(), ElementCodec.UTF_8);
+        assertTrue(decoder.hasPayload());
+        List<String> added = new ArrayList<String>();
+        final List<Difference> decoded = new ArrayList<Difference>();
+        decoder.decode(new DiffVisitor() {
+            public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+                decoded.add(new Difference(delStart, delEnd, addStart, addEnd));
+            }
+        }, added);
+        assertEquals(differences, decoded);
+        assertEquals(list("x", "\u00e9t\u00e9"), added);
+
+        // the payload is skipped without a list:
+        assertEquals(differences, new PatchDecoder<String>(encoder.getBuffer()).decode());
+    }
+
+    public void testCompact() throws IOException {
+        PatchEncoder<String> encoder = new PatchEncoder<String>();
+        encoder.encode(list(new Difference(3, 3, 3, 3), new Difference(10, Difference.NONE, 10, 11), new Difference(200, 201, 202, Difference.NONE)));
+        encoder.finish();
+        byte[] bytes = encoder.toByteArray();
+        // the header, three bytes for each, but for the gap of 190, and the end:
+        assertEquals(5 + 3 + 3 + 4 + 2, bytes.length);
+        assertEquals(list(new Difference(3, 3, 3, 3), new Difference(10, Difference.NONE, 10, 11), new Difference(200, 201, 202, Difference.NONE)),
+                     new PatchDecoder<String>(ByteBuffer.wrap(bytes)).decode());
+    }
+
+    public void testChannel() throws IOException {
+        List<String> from = new ArrayList<String>();
+        List<String> to = new ArrayList<String>();
+        for (int idx = 0; idx < 20000; ++idx) {
+            from.add("line " + idx);
+            to.add(idx % 3 == 0 ? "other " + idx : "line " + idx);
+        }
+        List<Difference> differences = new Diff<String>(from, to).execute();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PatchEncoder<String> encoder = new PatchEncoder<String>(Channels.newChannel(out), to, ElementCodec.UTF_8);
+        encoder.encode(differences);
+        encoder.finish();
+
+        PatchEncoder<String> inMemory = new PatchEncoder<String>(to, ElementCodec.UTF_8);
+        inMemory.encode(differences);
+        inMemory.finish();
+        assertTrue(Arrays.equals(inMemory.toByteArray(), out.toByteArray()));
+        assertEquals(differences, new PatchDecoder<String>(ByteBuffer.wrap(out.toByteArray())).decode());
+    }
+
+    public void testInvalid() {
+        PatchEncoder<String> encoder = new PatchEncoder<String>();
+        encoder.onDifference(2, 3, 2, Difference.NONE);
+        try {
+            encoder.onDifference(5, 5, 6, 6);
+            fail("the gaps differ");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+
+        try {
+            new PatchDecoder<String>(ByteBuffer.wrap(new byte[] { 'x', 'y' }));
+            fail("not a patch");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+    }
+
+    /**
+     * Returns a patch of the given flags and bytes.
+     */
+    public byte[] patch(int flags, int ... values) {
+        int header = PatchEncoder.MAGIC.length + 1;
+        byte[] bytes = Arrays.copyOf(PatchEncoder.MAGIC, header + values.length);
+        bytes[header - 1] = (byte)flags;
+        for (int idx = 0; idx < values.length; ++idx) {
+            bytes[header + idx] = (byte)values[idx];
+        }
+        return bytes;
+    }
+
+    /**
+     * Asserts that the patch is rejected with the message, with its payload
+     * both read, if it has one, and skipped.
+     */
+    public void assertCorrupt(String message, byte[] bytes) {
+        DiffVisitor visitor = new DiffVisitor() {
+            public void onDifference(int delStart, int delEnd, int addStart, int addEnd) {
+            }
+        };
+
+        PatchDecoder<String> decoder = new PatchDecoder<String>(ByteBuffer.wrap(bytes), ElementCodec.UTF_8);
+        if (decoder.hasPayload()) {
+            try {
+                decoder.decode(visitor, new ArrayList<String>());
+                fail("expected IllegalArgumentException");
+            }
+            catch (IllegalArgumentException iae) {
+                assertEquals(message, iae.getMessage());
+            }
+        }
+
+        try {
+            new PatchDecoder<String>(ByteBuffer.wrap(bytes)).decode(visitor);
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException iae) {
+            assertEquals(message, iae.getMessage());
+        }
+    }
+
+    public void testCorrupt() {
+        // an element of three bytes, with two left:
+        assertCorrupt("patch is truncated", patch(PatchEncoder.FLAG_PAYLOAD, 0, 1, 1, 3, 'x', 'y'));
+
+        // an element of 2^31 - 1 bytes:
+        assertCorrupt("patch is truncated", patch(PatchEncoder.FLAG_PAYLOAD, 0, 1, 1, 0xff, 0xff, 0xff, 0xff, 0x07, 'x', 0, 0));
+
+        // counts of -1 and of 2^32 + 1, which are not valid:
+        assertCorrupt("invalid varint in patch", patch(0, 0xff, 0xff, 0xff, 0xff, 0x0f, 0, 0, 0, 0));
+        assertCorrupt("invalid varint in patch", patch(0, 0x81, 0x80, 0x80, 0x80, 0x10, 0, 0, 0, 0));
+
+        // a gap to the largest position, past which one is deleted:
+        assertCorrupt("invalid varint in patch", patch(0, 1, 0, 0xff, 0xff, 0xff, 0xff, 0x07, 0, 0));
+    }
+}
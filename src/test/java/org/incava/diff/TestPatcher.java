@@ -0,0 +1,157 @@
+package org.incava.diff;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+import static org.incava.diff.Util.list;
+
+public class TestPatcher extends TestCase {
+    public TestPatcher(String name) {
+        super(name);
+    }
+
+    public List<String> sequence(int count, Random random) {
+        List<String> list = new ArrayList<String>();
+        for (int idx = 0; idx < count; ++idx) {
+            list.add("line " + random.nextInt(20));
+        }
+        return list;
+    }
+
+    public String join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void testApply() throws IOException {
+        Random random = new Random(25);
+        for (int count = 0; count < 40; ++count) {
+            List<String> from = sequence(random.nextInt(200), random);
+            List<String> to = sequence(random.nextInt(200), random);
+            List<Difference> differences = new Diff<String>(from, to).execute();
+
+            assertEquals(to, Patcher.apply(from, differences, to));
+
+            GapBuffer<String> document = new GapBuffer<String>(from);
+            Patcher.applyInPlace(document, differences, to);
+            assertEquals(to, document);
+
+            PatchEncoder<String> encoder = new PatchEncoder<String>(to, ElementCodec.UTF_8);
+            encoder.encode(differences);
+            encoder.finish();
+            assertEquals(to, Patcher.apply(from, encoder.getBuffer(), ElementCodec.UTF_8));
+
+            StringWriter sw = new StringWriter();
+            Patcher.apply(new BufferedReader(new StringReader(join(from))), differences, to, sw);
+            assertEquals(join(to), sw.toString());
+
+            sw = new StringWriter();
+            Patcher.apply(new BufferedReader(new StringReader(join(from))), encoder.getBuffer(), sw);
+            assertEquals(join(to), sw.toString());
+        }
+    }
+
+    public void testEmpty() {
+        List<String> empty = list();
+        assertEquals(list("a", "b"), Patcher.apply(empty, list(new Difference(0, Difference.NONE, 0, 1)), list("a", "b")));
+        assertEquals(empty, Patcher.apply(list("a", "b"), list(new Difference(0, 1, 0, Difference.NONE)), empty));
+        assertEquals(list("a"), Patcher.apply(list("a"), new ArrayList<Difference>(), list("a")));
+    }
+
+    public void testInvalid() {
+        try {
+            Patcher.apply(list("a"), list(new Difference(0, 2, 0, Difference.NONE)), list("b"));
+            fail("past the end");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+    }
+
+    public void testNoPayload() throws IOException {
+        PatchEncoder<String> encoder = new PatchEncoder<String>();
+        encoder.encode(list(new Difference(1, 1, 1, 1)));
+        encoder.finish();
+        try {
+            Patcher.apply(list("a", "b"), encoder.getBuffer(), ElementCodec.UTF_8);
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException iae) {
+            assertEquals("the patch has no added elements", iae.getMessage());
+        }
+    }
+
+    public void testExceptions() {
+        final IOException written = new IOException("written");
+        Patcher<String> patcher = new Patcher<String>(list("a", "b").iterator(), list("c"), false, new Patcher.Output<String>() {
+            public void write(String element) throws IOException {
+                throw written;
+            }
+        });
+        try {
+            patcher.apply(list(new Difference(1, 1, 0, 0)));
+            fail("expected IOException");
+        }
+        catch (IOException ioe) {
+            assertSame(written, ioe);
+        }
+
+        // one not of the output is not unwrapped:
+        final RuntimeException read = new RuntimeException(new IOException("read"));
+        patcher = new Patcher<String>(new Iterator<String>() {
+            public boolean hasNext() {
+                return true;
+            }
+
+            public String next() {
+                throw read;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        }, list("c"), false, new Patcher.Output<String>() {
+            public void write(String element) {
+            }
+        });
+        try {
+            patcher.apply(list(new Difference(1, 1, 0, 0)));
+            fail("expected RuntimeException");
+        }
+        catch (IOException ioe) {
+            fail("unwrapped: " + ioe);
+        }
+        catch (RuntimeException re) {
+            assertSame(read, re);
+        }
+    }
+
+    public void testGapBuffer() {
+        GapBuffer<String> buffer = new GapBuffer<String>();
+        List<String> expected = new ArrayList<String>();
+        Random random = new Random(26);
+        for (int count = 0; count < 500; ++count) {
+            int start = random.nextInt(expected.size() + 1);
+            int removed = random.nextInt(Math.min(3, expected.size() - start) + 1);
+            List<String> items = sequence(random.nextInt(4), random);
+            buffer.replace(start, removed, items);
+            expected.subList(start, start + removed).clear();
+            expected.addAll(start, items);
+            assertEquals(expected, buffer);
+        }
+
+        buffer.add(0, "first");
+        assertEquals("first", buffer.get(0));
+        assertEquals("first", buffer.remove(0));
+        assertEquals(expected, buffer);
+    }
+}
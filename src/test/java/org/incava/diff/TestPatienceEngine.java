@@ -0,0 +1,14 @@
+package org.incava.diff;
+
+/**
+ * Runs the <code>Diff</code> tests with the patience engine.
+ */
+public class TestPatienceEngine extends TestDiff {
+    public TestPatienceEngine(String name) {
+        super(name);
+    }
+
+    protected DiffEngine getEngine() {
+        return new PatienceEngine();
+    }
+}
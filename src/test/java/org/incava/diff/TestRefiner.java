@@ -0,0 +1,78 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class TestRefiner extends TestCase {
+    public TestRefiner(String name) {
+        super(name);
+    }
+
+    public List<Refinement> refine(Refiner refiner, String[] from, String[] to) {
+        List<String> a = Arrays.asList(from);
+        List<String> b = Arrays.asList(to);
+        return refiner.refine(a, b, new Diff<String>(a, b).execute());
+    }
+
+    public Refinement refinement(int fromLine, int toLine, Difference ... differences) {
+        return new Refinement(fromLine, toLine, Arrays.asList(differences));
+    }
+
+    public void testTokens() {
+        List<Refinement> expected = Arrays.asList(refinement(1, 1, new Difference(4, 4, 4, 4)));
+        assertEquals(expected, refine(new Refiner(), new String[] { "a", "int x = 1;", "b" }, new String[] { "a", "int y = 1;", "b" }));
+    }
+
+    public void testTokensWhole() {
+        List<Refinement> expected = Arrays.asList(refinement(0, 0, new Difference(0, 4, 0, 3)));
+        assertEquals(expected, refine(new Refiner(), new String[] { "hello world" }, new String[] { "help world" }));
+    }
+
+    public void testCharacters() {
+        Refiner refiner = new Refiner(Refiner.CHARACTERS, Refiner.DEFAULT_MAX_HUNK_COST, Refiner.DEFAULT_MAX_TOTAL_COST);
+        List<Refinement> expected = Arrays.asList(refinement(0, 0, new Difference(3, 4, 3, 3)));
+        assertEquals(expected, refine(refiner, new String[] { "hello world" }, new String[] { "help world" }));
+    }
+
+    public void testAddAndDelete() {
+        Refiner refiner = new Refiner(Refiner.CHARACTERS, Refiner.DEFAULT_MAX_HUNK_COST, Refiner.DEFAULT_MAX_TOTAL_COST);
+        List<Refinement> expected = Arrays.asList(refinement(0, 0, new Difference(0, 0, 0, Difference.NONE), new Difference(4, Difference.NONE, 3, 4)));
+        assertEquals(expected, refine(refiner, new String[] { "xabc" }, new String[] { "abcyz" }));
+    }
+
+    public void testPairsSimilar() {
+        List<Refinement> refinements = refine(new Refiner(),
+                                              new String[] { "start", "foo(1);", "bar(2);", "end" },
+                                              new String[] { "start", "#########", "foo(3);", "bar(4);", "end" });
+        assertEquals(2, refinements.size());
+        assertEquals(1, refinements.get(0).getFromLine());
+        assertEquals(2, refinements.get(0).getToLine());
+        assertEquals(2, refinements.get(1).getFromLine());
+        assertEquals(3, refinements.get(1).getToLine());
+        assertEquals(Arrays.asList(new Difference(4, 4, 4, 4)), refinements.get(1).getDifferences());
+    }
+
+    public void testIgnoresAddsAndDeletes() {
+        assertEquals(new ArrayList<Refinement>(), refine(new Refiner(), new String[] { "a", "b" }, new String[] { "b", "c" }));
+    }
+
+    public void testBudget() {
+        String[] from = new String[] { "one two three", "four five six" };
+        String[] to = new String[] { "one 2 three", "four 5 six" };
+
+        Refiner refiner = new Refiner(Refiner.CHARACTERS, 30, 1000);
+        List<Refinement> refinements = refine(refiner, from, to);
+        assertTrue(refinements.size() < 2);
+        assertTrue(refiner.getCost() <= 30);
+
+        refiner = new Refiner(Refiner.CHARACTERS, 1000, 0);
+        assertEquals(new ArrayList<Refinement>(), refine(refiner, from, to));
+        assertEquals(0, refiner.getCost());
+
+        refiner = new Refiner(Refiner.CHARACTERS, 1000, 1000);
+        assertEquals(2, refine(refiner, from, to).size());
+        assertTrue(refiner.getCost() > 30);
+    }
+}
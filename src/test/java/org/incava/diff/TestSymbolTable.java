@@ -0,0 +1,75 @@
+package org.incava.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+public class TestSymbolTable extends TestCase {
+    public TestSymbolTable(String name) {
+        super(name);
+    }
+
+    public List<String> words(int count, int distinct, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<String>();
+        for (int idx = 0; idx < count; ++idx) {
+            words.add("w" + random.nextInt(distinct));
+        }
+        return words;
+    }
+
+    public void testIntern() {
+        List<String> from = Arrays.asList(new String[] { "a", "b", "a", "c" });
+        SymbolTable<String> symbols = new SymbolTable<String>(new LCS<String>(from, from));
+        int[] syms = symbols.intern(from, 0, from.size());
+        assertEquals("[0, 1, 0, 2]", Arrays.toString(syms));
+        assertEquals(3, symbols.size());
+        assertEquals(1, symbols.lookup("b"));
+        assertEquals(-1, symbols.lookup("d"));
+        assertEquals(3, symbols.size());
+    }
+
+    public void testLookup() {
+        List<String> from = Arrays.asList(new String[] { "a", "b" });
+        List<String> to = Arrays.asList(new String[] { "b", "x", "a", "b" });
+        SymbolTable<String> symbols = new SymbolTable<String>(new LCS<String>(from, to));
+        symbols.intern(from, 0, from.size());
+        assertEquals("[-1, 0, 1]", Arrays.toString(symbols.lookup(to, 1, 4)));
+    }
+
+    public void testComparator() {
+        List<String> from = Arrays.asList(new String[] { "a", "A", "b" });
+        Comparator<String> comp = String.CASE_INSENSITIVE_ORDER;
+        SymbolTable<String> symbols = new SymbolTable<String>(new LCS<String>(from, from, comp));
+        assertEquals("[0, 0, 1]", Arrays.toString(symbols.intern(from, 0, from.size())));
+    }
+
+    public void testParallel() throws Exception {
+        List<String> from = words(5000, 300, 1);
+        List<String> to = words(4000, 400, 2);
+        LCS<String> lcs = new LCS<String>(from, to);
+
+        SymbolTable<String> serial = new SymbolTable<String>(lcs);
+        int[] serialFrom = serial.intern(from, 10, from.size());
+        int[] serialTo = serial.lookup(to, 0, to.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SymbolTable<String> parallel = new SymbolTable<String>(lcs, executor, 128);
+            assertTrue(Arrays.equals(serialFrom, parallel.intern(from, 10, from.size())));
+            assertTrue(Arrays.equals(serialTo, parallel.lookup(to, 0, to.size())));
+            assertEquals(serial.size(), parallel.size());
+
+            List<Integer> expected = new LCS<String>(from, to).getMatches();
+            assertEquals(expected, new LCS<String>(from, to, null, executor).getMatches());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
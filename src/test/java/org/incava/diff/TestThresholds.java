@@ -0,0 +1,78 @@
+package org.incava.diff;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class TestThresholds extends TestCase {
+    public TestThresholds(String name) {
+        super(name);
+    }
+
+    public String toString(Thresholds thresh) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int idx = 0; idx < thresh.size(); ++idx) {
+            sb.append(idx == 0 ? "" : ", ").append(thresh.get(idx));
+        }
+        return sb.append("]").toString();
+    }
+
+    public void testAppend() {
+        Thresholds thresh = new Thresholds(1);
+        assertTrue(thresh.isEmpty());
+        assertEquals(0, thresh.insert(3, -1));
+        assertEquals(1, thresh.insert(5, -1));
+        assertEquals(2, thresh.insert(9, -1));
+        assertEquals("[3, 5, 9]", toString(thresh));
+    }
+
+    public void testReplace() {
+        Thresholds thresh = new Thresholds();
+        thresh.insert(3, -1);
+        thresh.insert(5, -1);
+        thresh.insert(9, -1);
+        assertEquals(2, thresh.insert(7, -1));
+        assertEquals(0, thresh.insert(1, 2));
+        assertEquals("[1, 5, 7]", toString(thresh));
+    }
+
+    public void testExisting() {
+        Thresholds thresh = new Thresholds();
+        thresh.insert(3, -1);
+        thresh.insert(5, -1);
+        assertEquals(-1, thresh.insert(5, -1));
+        assertEquals(-1, thresh.insert(3, 1));
+        assertEquals("[3, 5]", toString(thresh));
+    }
+
+    public void testAgainstLinearSearch() {
+        Random random = new Random(10);
+        Thresholds thresh = new Thresholds();
+        int[] expected = new int[1000];
+        int size = 0;
+
+        for (int row = 0; row < 300; ++row) {
+            // as in LCS, the positions of each row are inserted in decreasing
+            // order, with the index of each as the bound for the next:
+            int k = -1;
+            for (int j = 999; j >= 0; j -= 1 + random.nextInt(200)) {
+                int idx = 0;
+                while (idx < size && expected[idx] < j) {
+                    ++idx;
+                }
+                int expectedIdx = idx < size && expected[idx] == j ? -1 : idx;
+                if (expectedIdx != -1) {
+                    expected[idx] = j;
+                    size = Math.max(size, idx + 1);
+                }
+
+                k = thresh.insert(j, k);
+                assertEquals(expectedIdx, k);
+            }
+        }
+
+        assertEquals(size, thresh.size());
+        for (int idx = 0; idx < size; ++idx) {
+            assertEquals(expected[idx], thresh.get(idx));
+        }
+    }
+}